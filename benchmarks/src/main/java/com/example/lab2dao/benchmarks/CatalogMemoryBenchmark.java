@@ -0,0 +1,106 @@
+/**
+ * JMH-бенчмарк памяти in-memory хранилищ на больших каталогах:
+ * {@link ProductDaoImpl} (объект на строку) против {@link ColumnarProductDaoImpl}
+ * (примитивные колонки).
+ *
+ * <p>Каждый вызов заполняет новое хранилище catalogSize товарами пакетными добавлениями.
+ * Хранилище остается в состоянии бенчмарка до конца итерации, поэтому
+ * heap.retained профилировщика {@link HeapProfiler} показывает его размер,
+ * а gc.alloc.rate.norm - сколько памяти выделено при заполнении.
+ *
+ * <p>Параметры:
+ * <ul>
+ *     <li>backend - memory ({@link ProductDaoImpl}), columnar (имена в куче),
+ *     columnar-offheap (имена в direct-буфере, размер - в offheap.direct)</li>
+ *     <li>catalogSize - 1 000 000 и 10 000 000 товаров</li>
+ * </ul>
+ *
+ * <p>Каталогу из 10 000 000 товаров в {@link ProductDaoImpl} нужно несколько гигабайт,
+ * поэтому форк запускается с -Xmx{@value #MAX_HEAP}.
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.ColumnarProductDaoImpl;
+import com.example.lab2dao.dao.ProductDao;
+import com.example.lab2dao.dao.ProductDaoImpl;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx" + CatalogMemoryBenchmark.MAX_HEAP)
+public class CatalogMemoryBenchmark {
+    static final String MAX_HEAP = "4g";
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+
+    @Param({"memory", "columnar", "columnar-offheap"})
+    public String backend;
+
+    @Param({"1000000", "10000000"})
+    public int catalogSize;
+
+    /** Заполненное хранилище; удерживается до конца итерации для замера heap.retained. */
+    private ProductDao catalog;
+
+    /**
+     * Освобождает хранилище предыдущего вызова, чтобы в памяти было не больше одного каталога.
+     */
+    @Setup(Level.Invocation)
+    public void releaseCatalog() {
+        catalog = null;
+    }
+
+    @TearDown(Level.Iteration)
+    public void measureCatalog() {
+        HeapProfiler.recordRetainedHeap();
+    }
+
+    @Benchmark
+    public ProductDao load() {
+        ProductDao dao = createDao();
+        List<ProductRecord> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        for (int i = 0; i < catalogSize; i++) {
+            batch.add(new ProductRecord(0, "Товар " + i, i % 1000, TAGS[i % TAGS.length]));
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                dao.addProducts(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            dao.addProducts(batch);
+        }
+        catalog = dao;
+        return dao;
+    }
+
+    private ProductDao createDao() {
+        return switch (backend) {
+            case "memory" -> new ProductDaoImpl();
+            case "columnar" -> new ColumnarProductDaoImpl();
+            case "columnar-offheap" -> new ColumnarProductDaoImpl(true);
+            default -> throw new IllegalArgumentException("Неизвестный тип DAO: " + backend);
+        };
+    }
+}
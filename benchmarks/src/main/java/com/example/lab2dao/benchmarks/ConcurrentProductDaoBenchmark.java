@@ -0,0 +1,116 @@
+/**
+ * JMH-бенчмарк масштабирования {@link ConcurrentProductDaoImpl} по числу потоков:
+ * один и тот же объем операций выполняется 1, 2, 4 и 8 потоками одновременно,
+ * результат - операций в миллисекунду на все потоки вместе.
+ *
+ * <p>Каждый вызов раздает {@value #OPS_PER_CALL} операций поровну между threads
+ * потоками и ждет их завершения. Операции выбираются случайно по смеси
+ * 70% {@link ConcurrentProductDaoImpl#getProductById}, 20%
+ * {@link ConcurrentProductDaoImpl#adjustQuantity} и 10%
+ * {@link ConcurrentProductDaoImpl#updateProduct} над каталогом из
+ * {@value #CATALOG_SIZE} товаров.
+ *
+ * <p>Параметры:
+ * <ul>
+ *     <li>threads - количество одновременно работающих потоков</li>
+ * </ul>
+ *
+ * <p>Рост результата с числом потоков ограничен числом ядер: на одном ядре
+ * пропускная способность остается на уровне одного потока.
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.ConcurrentProductDaoImpl;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentProductDaoBenchmark {
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int OPS_PER_CALL = 100_000;
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ConcurrentProductDaoImpl dao;
+    private ExecutorService executor;
+    private List<Callable<Void>> workers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dao = new ConcurrentProductDaoImpl();
+        List<ProductRecord> catalog = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.add(new ProductRecord(0, "Товар " + i, i % 1000, TAGS[i % TAGS.length]));
+        }
+        dao.addProducts(catalog);
+        executor = Executors.newFixedThreadPool(threads);
+        workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int operations = OPS_PER_CALL / threads + (i < OPS_PER_CALL % threads ? 1 : 0);
+            workers.add(() -> {
+                runOperations(operations);
+                return null;
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS_PER_CALL)
+    public void mixed() throws InterruptedException, ExecutionException {
+        for (Future<Void> worker : executor.invokeAll(workers)) {
+            worker.get();
+        }
+    }
+
+    private void runOperations(int operations) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < operations; i++) {
+            int id = random.nextInt(CATALOG_SIZE) + 1;
+            int kind = random.nextInt(10);
+            if (kind < 7) {
+                dao.getProductById(id);
+            } else if (kind < 9) {
+                dao.adjustQuantity(id, random.nextBoolean() ? 1 : -1, false);
+            } else {
+                dao.updateProduct(new ProductRecord(id, "Обновленный товар " + id, i % 1000, TAGS[id % TAGS.length]));
+            }
+        }
+    }
+}
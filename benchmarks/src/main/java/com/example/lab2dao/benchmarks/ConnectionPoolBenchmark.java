@@ -0,0 +1,94 @@
+/**
+ * JMH-бенчмарк пула соединений PostgreSQL под нагрузкой из нескольких потоков:
+ * {@value #CALLERS} потоков одновременно читают товары по ID через
+ * {@link PostgresProductDaoImpl} с пулом разного размера.
+ *
+ * <p>Параметры:
+ * <ul>
+ *     <li>poolSize - максимальное число соединений пула; 1 - все потоки делят одно
+ *     соединение и ждут его по очереди</li>
+ * </ul>
+ *
+ * <p>Особенности:
+ * <ul>
+ *     <li>Число потоков меняется стандартным параметром JMH, например {@code -t 16}</li>
+ *     <li>Перед запуском таблица очищается и заполняется {@value #CATALOG_SIZE} товарами;
+ *     база и учетные данные - те же свойства bench.postgres.*, что у {@link ProductDaoBenchmark}</li>
+ * </ul>
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.PostgresProductDaoImpl;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(ConnectionPoolBenchmark.CALLERS)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+    static final int CALLERS = 8;
+    private static final String DEFAULT_POSTGRES_URL = "jdbc:postgresql://localhost:7777/dao_bench";
+    private static final int CATALOG_SIZE = 10_000;
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+
+    @Param({"1", "4", "8"})
+    public int poolSize;
+
+    private PostgresProductDaoImpl dao;
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dao = new PostgresProductDaoImpl(
+                System.getProperty("bench.postgres.url", DEFAULT_POSTGRES_URL),
+                System.getProperty("bench.postgres.user", "postgres"),
+                System.getProperty("bench.postgres.password", "postgres"),
+                poolSize);
+        List<Integer> existing;
+        try (Stream<ProductRecord> products = dao.streamProducts()) {
+            existing = products.map(ProductRecord::id).toList();
+        }
+        dao.deleteProducts(existing);
+        List<ProductRecord> catalog = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.add(new ProductRecord(0, "Товар " + i, i % 1000, TAGS[i % TAGS.length]));
+        }
+        ids = dao.addProducts(catalog).stream().mapToInt(ProductRecord::id).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDao() {
+        dao.close();
+    }
+
+    @Benchmark
+    public Optional<ProductRecord> getById() {
+        return dao.getProductById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
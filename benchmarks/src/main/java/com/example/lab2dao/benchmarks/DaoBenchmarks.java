@@ -0,0 +1,42 @@
+/**
+ * Точка входа benchmarks.jar: запускает JMH с профилировщиком сборщика мусора,
+ * чтобы вместе с пропускной способностью и средним временем выводилась
+ * скорость выделения памяти (gc.alloc.rate и gc.alloc.rate.norm), и с
+ * {@link HeapProfiler} для пиковой и оставшейся занятости кучи.
+ *
+ * <p>Принимает стандартные параметры командной строки JMH, например:
+ * <pre>{@code
+ * java -jar target/benchmarks.jar -p backend=memory,excel -p catalogSize=1000,100000
+ * java -jar target/benchmarks.jar ProductDaoBenchmark.getAll -rf json -rff baseline.json
+ * }</pre>
+ *
+ * @see ProductDaoBenchmark
+ * @see CatalogMemoryBenchmark
+ * @see ExcelSaveBenchmark
+ * @see ConnectionPoolBenchmark
+ * @see ProductAllocationBenchmark
+ * @see ConcurrentProductDaoBenchmark
+ */
+package com.example.lab2dao.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public final class DaoBenchmarks {
+    private DaoBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .addProfiler(HeapProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
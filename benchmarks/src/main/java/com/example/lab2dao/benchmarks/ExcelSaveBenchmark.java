@@ -0,0 +1,97 @@
+/**
+ * JMH-бенчмарк сохранения каталога в Excel потоковой записью SXSSF
+ * ({@link ExcelProductDaoImpl}).
+ *
+ * <p>Каждый вызов записывает rows товаров одним {@link ExcelProductDaoImpl#addProducts}
+ * в новый файл, то есть выполняет одну полную перезапись файла. Результат - время
+ * сохранения; heap.peak профилировщика {@link HeapProfiler} показывает пиковое
+ * заполнение кучи, gc.alloc.rate.norm - выделенную при сохранении память.
+ *
+ * <p>Особенности:
+ * <ul>
+ *     <li>Список сохраняемых товаров строится один раз на запуск и входит в heap.peak
+ *     всех вызовов, поэтому рост пика с числом строк показывает цену самой записи</li>
+ *     <li>Файлы создаются во временном каталоге и удаляются после каждого вызова</li>
+ * </ul>
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.ExcelProductDaoImpl;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ExcelSaveBenchmark {
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private List<ProductRecord> products;
+    private Path directory;
+    private Path file;
+    private ExcelProductDaoImpl dao;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("lab2dao-excel-bench");
+        products = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            products.add(new ProductRecord(0, "Товар " + i, i % 1000, TAGS[i % TAGS.length]));
+        }
+    }
+
+    /**
+     * Создает DAO для нового пустого файла.
+     */
+    @Setup(Level.Invocation)
+    public void openEmptyFile() {
+        file = directory.resolve("products-" + invocation++ + ".xlsx");
+        dao = new ExcelProductDaoImpl();
+        dao.setDataSource(file.toString());
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFile() throws IOException {
+        dao.close();
+        dao = null;
+        Files.deleteIfExists(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDirectory() throws IOException {
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<ProductRecord> save() {
+        return dao.addProducts(products);
+    }
+}
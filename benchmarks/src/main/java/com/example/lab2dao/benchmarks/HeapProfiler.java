@@ -0,0 +1,104 @@
+/**
+ * Профилировщик JMH, дополняющий скорость выделения памяти ({@link org.openjdk.jmh.profile.GCProfiler})
+ * занятой памятью. Для каждой итерации выводит:
+ * <ul>
+ *     <li>heap.peak - пиковое заполнение кучи за итерацию (сумма пиков областей кучи)</li>
+ *     <li>heap.retained - занятая куча после полной сборки мусора в конце итерации:
+ *     сюда входят данные, которые бенчмарк оставил в своем состоянии. После последней
+ *     итерации JMH освобождает состояние раньше, чем вызывается профилировщик, поэтому
+ *     бенчмарк, измеряющий свои данные, вызывает {@link #recordRetainedHeap()}
+ *     в {@code @TearDown(Level.Iteration)}</li>
+ *     <li>offheap.direct - память direct-буферов вне кучи в конце итерации
+ *     (или в момент {@link #recordRetainedHeap()})</li>
+ * </ul>
+ * Значения абсолютные (вместе с самим JMH), поэтому сравнивать их следует между
+ * параметрами одного бенчмарка.
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.List;
+
+public final class HeapProfiler implements InternalProfiler {
+    private static final double MB = 1024.0 * 1024.0;
+    /** Количество полных сборок перед замером: вторая добирает объекты, освобожденные финализацией. */
+    private static final int GC_PASSES = 2;
+
+    /** Занятая куча, замеренная бенчмарком в текущей итерации; -1 - не замерялась. */
+    private static volatile long recordedRetained = -1;
+    private static volatile long recordedDirect;
+
+    /**
+     * Замеряет занятую кучу после полной сборки мусора и память direct-буферов, пока
+     * данные бенчмарка еще достижимы; замер выводится в результатах текущей итерации.
+     */
+    public static void recordRetainedHeap() {
+        recordedDirect = directMemory();
+        recordedRetained = retainedHeap();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Пиковая и оставшаяся после сборки мусора занятость кучи";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        recordedRetained = -1;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+                                                       IterationParams iterationParams,
+                                                       IterationResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        boolean recorded = recordedRetained >= 0;
+        long retained = recorded ? recordedRetained : retainedHeap();
+        long direct = recorded ? recordedDirect : directMemory();
+        return List.of(
+                new ScalarResult("heap.peak", peak / MB, "MB", AggregationPolicy.AVG),
+                new ScalarResult("heap.retained", retained / MB, "MB", AggregationPolicy.AVG),
+                new ScalarResult("offheap.direct", direct / MB, "MB", AggregationPolicy.AVG));
+    }
+
+    private static long retainedHeap() {
+        for (int i = 0; i < GC_PASSES; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directMemory() {
+        long direct = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                direct += pool.getMemoryUsed();
+            }
+        }
+        return direct;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * JMH-бенчмарк массовой загрузки товаров в PostgreSQL: COPY FROM STDIN
+ * ({@link PostgresProductDaoImpl#importProducts(InputStream)}) против пакетных
+ * многострочных INSERT ({@link PostgresProductDaoImpl#addProducts(java.util.Collection)}).
+ *
+ * <p>Особенности:
+ * <ul>
+ *     <li>Каждый вызов загружает rows товаров в пустую таблицу; результат - время одной
+ *     загрузки, пропускная способность в строках в секунду - rows / время</li>
+ *     <li>Таблица очищается перед каждым вызовом вне замера</li>
+ *     <li>CSV для COPY и список товаров для INSERT строятся один раз на запуск,
+ *     поэтому в замер входит только передача и запись строк</li>
+ *     <li>База и учетные данные - те же свойства bench.postgres.*, что у {@link ProductDaoBenchmark}</li>
+ * </ul>
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.PostgresProductDaoImpl;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PostgresImportBenchmark {
+    private static final String DEFAULT_POSTGRES_URL = "jdbc:postgresql://localhost:7777/dao_bench";
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private PostgresProductDaoImpl dao;
+    private byte[] csv;
+    private List<ProductRecord> products;
+
+    /**
+     * Подключается к базе и готовит одни и те же данные для обоих способов загрузки.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        dao = new PostgresProductDaoImpl(
+                System.getProperty("bench.postgres.url", DEFAULT_POSTGRES_URL),
+                System.getProperty("bench.postgres.user", "postgres"),
+                System.getProperty("bench.postgres.password", "postgres"),
+                2);
+        products = new ArrayList<>(rows);
+        StringBuilder text = new StringBuilder("id,name,quantity,tag\n");
+        for (int i = 1; i <= rows; i++) {
+            ProductRecord product = new ProductRecord(i, "Товар " + i, i % 1000, TAGS[i % TAGS.length]);
+            products.add(product);
+            text.append(product.id()).append(',').append(product.name()).append(',')
+                    .append(product.quantity()).append(',')
+                    .append(product.tag() == null ? "" : product.tag()).append('\n');
+        }
+        csv = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Очищает таблицу перед каждой загрузкой.
+     */
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        List<Integer> existing;
+        try (Stream<ProductRecord> stored = dao.streamProducts()) {
+            existing = stored.map(ProductRecord::id).toList();
+        }
+        dao.deleteProducts(existing);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDao() {
+        dao.close();
+    }
+
+    @Benchmark
+    public long copy() {
+        return dao.importProducts(new ByteArrayInputStream(csv));
+    }
+
+    @Benchmark
+    public int batchedInsert() {
+        int added = 0;
+        for (int from = 0; from < rows; from += INSERT_BATCH_SIZE) {
+            added += dao.addProducts(products.subList(from, Math.min(from + INSERT_BATCH_SIZE, rows))).size();
+        }
+        return added;
+    }
+}
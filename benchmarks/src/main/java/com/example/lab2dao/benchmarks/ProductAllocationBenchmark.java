@@ -0,0 +1,126 @@
+/**
+ * JMH-бенчмарк памяти, которую занимает представление каталога для таблицы:
+ * неизменяемые записи {@link ProductRecord} против JavaFX-товаров {@link Product}
+ * со свойствами.
+ *
+ * <p>Каталог из {@value #CATALOG_SIZE} товаров один раз загружается в {@link ProductDaoImpl}.
+ * Каждый вызов строит представление заново; последнее остается в состоянии бенчмарка
+ * до конца итерации, поэтому heap.retained профилировщика {@link HeapProfiler}
+ * показывает его размер вместе с каталогом, а gc.alloc.rate.norm - сколько памяти
+ * выделено на один вызов.
+ *
+ * <p>Параметры:
+ * <ul>
+ *     <li>view - records (только список записей из {@link ProductDaoImpl#getAllProducts()}),
+ *     products (каждая запись обернута в {@link Product}), paged ({@link PagedProductList}
+ *     с параметрами таблицы, прочитаны первые {@value #VISIBLE_ROWS} строк)</li>
+ * </ul>
+ *
+ * <p>Каталог входит в heap.retained всех вариантов, поэтому разницу между вариантами
+ * следует отсчитывать от records.
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.ProductDaoImpl;
+import com.example.lab2dao.dao.ProductSort;
+import com.example.lab2dao.model.PagedProductList;
+import com.example.lab2dao.model.Product;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ProductAllocationBenchmark {
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int VISIBLE_ROWS = 40;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+    /** Параметры списка строк таблицы, как в контроллере. */
+    private static final int PAGE_SIZE = 100;
+    private static final int PREFETCH_ROWS = 100;
+    private static final int MAX_PAGES = 10;
+
+    @Param({"records", "products", "paged"})
+    public String view;
+
+    private ProductDaoImpl dao;
+    /** Последнее построенное представление; удерживается до конца итерации для замера heap.retained. */
+    private List<?> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dao = new ProductDaoImpl();
+        List<ProductRecord> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            batch.add(new ProductRecord(0, "Товар " + i, i % 1000, TAGS[i % TAGS.length]));
+            if (batch.size() == LOAD_BATCH_SIZE) {
+                dao.addProducts(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void measureView() {
+        HeapProfiler.recordRetainedHeap();
+    }
+
+    @Benchmark
+    public List<?> build() {
+        rows = switch (view) {
+            case "records" -> dao.getAllProducts();
+            case "products" -> wrapAll();
+            case "paged" -> readVisibleRows();
+            default -> throw new IllegalArgumentException("Неизвестное представление: " + view);
+        };
+        return rows;
+    }
+
+    private List<Product> wrapAll() {
+        List<ProductRecord> records = dao.getAllProducts();
+        List<Product> products = new ArrayList<>(records.size());
+        for (ProductRecord record : records) {
+            products.add(new Product(record));
+        }
+        return products;
+    }
+
+    /**
+     * Читает первые строки так же, как таблица при открытии: страницы загружаются
+     * синхронно, поэтому все прочитанные строки уже не null.
+     */
+    private List<Product> readVisibleRows() {
+        PagedProductList list = new PagedProductList(PAGE_SIZE, PREFETCH_ROWS, MAX_PAGES, Runnable::run);
+        list.reset(dao.countProducts(), (offset, limit) ->
+                CompletableFuture.completedFuture(dao.getProductsPage(ProductSort.byId(), offset, limit)));
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            if (list.get(i) == null) {
+                throw new IllegalStateException("Строка не загружена: " + i);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * JMH-бенчмарк основных операций DAO на каталогах разного размера.
+ *
+ * <p>Измеряемые операции: добавление, обновление, удаление и чтение всех товаров.
+ * Каждая операция запускается для каждой комбинации параметров:
+ * <ul>
+ *     <li>backend - memory ({@link ProductDaoImpl}), excel ({@link ExcelProductDaoImpl}),
+ *     postgres ({@link PostgresProductDaoImpl})</li>
+ *     <li>catalogSize - количество товаров в каталоге перед измерением</li>
+ * </ul>
+ *
+ * <p>Особенности:
+ * <ul>
+ *     <li>Excel работает в режиме отложенной записи со сбросом каждые {@value #EXCEL_FLUSH_EVERY}
+ *     изменений: стоимость перезаписи файла входит в результат в амортизированном виде</li>
+ *     <li>PostgreSQL использует отдельную базу (по умолчанию {@value #DEFAULT_POSTGRES_URL}),
+ *     таблица products в ней очищается перед каждым запуском. URL, пользователь и пароль
+ *     задаются свойствами bench.postgres.url, bench.postgres.user, bench.postgres.password</li>
+ *     <li>Товары, добавленные бенчмарком add, удаляются после каждой итерации,
+ *     поэтому размер каталога остается постоянным</li>
+ *     <li>Для delete удаляемый товар добавляется перед каждым вызовом вне замера</li>
+ * </ul>
+ *
+ * @see DaoBenchmarks
+ */
+package com.example.lab2dao.benchmarks;
+
+import com.example.lab2dao.dao.ExcelProductDaoImpl;
+import com.example.lab2dao.dao.PostgresProductDaoImpl;
+import com.example.lab2dao.dao.ProductDao;
+import com.example.lab2dao.dao.ProductDaoImpl;
+import com.example.lab2dao.model.ProductRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDaoBenchmark {
+    private static final String DEFAULT_POSTGRES_URL = "jdbc:postgresql://localhost:7777/dao_bench";
+    private static final int EXCEL_FLUSH_EVERY = 1000;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    private static final String[] TAGS = {null, "овощи", "фрукты", "напитки", "бакалея"};
+
+    @Param({"memory", "excel", "postgres"})
+    public String backend;
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    ProductDao dao;
+    private Path excelDirectory;
+    private int[] catalogIds;
+    private int nextUpdate;
+    private int sequence;
+    private final List<Integer> addedIds = new ArrayList<>();
+
+    /**
+     * Создает DAO выбранного типа и заполняет каталог пакетными добавлениями.
+     */
+    @Setup(Level.Trial)
+    public void setUpCatalog() throws IOException {
+        dao = createDao();
+        List<ProductRecord> catalog = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            catalog.add(newProduct(i));
+        }
+        List<ProductRecord> added = new ArrayList<>(catalogSize);
+        for (int from = 0; from < catalogSize; from += LOAD_BATCH_SIZE) {
+            added.addAll(dao.addProducts(catalog.subList(from, Math.min(from + LOAD_BATCH_SIZE, catalogSize))));
+        }
+        if (dao instanceof ExcelProductDaoImpl excel) {
+            excel.flush();
+        }
+        catalogIds = added.stream().mapToInt(ProductRecord::id).toArray();
+        sequence = catalogSize;
+    }
+
+    /**
+     * Возвращает каталог к исходному размеру после итерации бенчмарка add.
+     */
+    @TearDown(Level.Iteration)
+    public void removeAddedProducts() {
+        if (!addedIds.isEmpty()) {
+            dao.deleteProducts(addedIds);
+            addedIds.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDao() throws Exception {
+        if (dao instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        if (excelDirectory != null) {
+            try (Stream<Path> files = Files.list(excelDirectory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(excelDirectory);
+        }
+    }
+
+    @Benchmark
+    public ProductRecord add() {
+        ProductRecord product = dao.addProduct(newProduct(sequence++));
+        addedIds.add(product.id());
+        return product;
+    }
+
+    @Benchmark
+    public ProductRecord update() {
+        int id = catalogIds[nextUpdate];
+        nextUpdate = (nextUpdate + 1) % catalogIds.length;
+        ProductRecord product = new ProductRecord(id, "Обновленный товар " + id, sequence++ % 1000, TAGS[id % TAGS.length]);
+        dao.updateProduct(product);
+        return product;
+    }
+
+    @Benchmark
+    public void delete(DeleteTarget target) {
+        dao.deleteProduct(target.id);
+    }
+
+    @Benchmark
+    public List<ProductRecord> getAll() {
+        return dao.getAllProducts();
+    }
+
+    /**
+     * Товар для бенчмарка delete: добавляется перед каждым вызовом, время добавления не измеряется.
+     */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        int id;
+
+        @Setup(Level.Invocation)
+        public void addProductToDelete(ProductDaoBenchmark benchmark) {
+            id = benchmark.dao.addProduct(newProduct(benchmark.sequence++)).id();
+        }
+    }
+
+    private ProductDao createDao() throws IOException {
+        switch (backend) {
+            case "memory" -> {
+                return new ProductDaoImpl();
+            }
+            case "excel" -> {
+                excelDirectory = Files.createTempDirectory("lab2dao-bench");
+                ExcelProductDaoImpl excel = new ExcelProductDaoImpl();
+                excel.setDataSource(excelDirectory.resolve("products.xlsx").toString());
+                excel.enableWriteBehind(Duration.ofHours(1), EXCEL_FLUSH_EVERY);
+                return excel;
+            }
+            case "postgres" -> {
+                PostgresProductDaoImpl postgres = new PostgresProductDaoImpl(
+                        System.getProperty("bench.postgres.url", DEFAULT_POSTGRES_URL),
+                        System.getProperty("bench.postgres.user", "postgres"),
+                        System.getProperty("bench.postgres.password", "postgres"),
+                        2);
+                List<Integer> existing;
+                try (Stream<ProductRecord> products = postgres.streamProducts()) {
+                    existing = products.map(ProductRecord::id).toList();
+                }
+                postgres.deleteProducts(existing);
+                return postgres;
+            }
+            default -> throw new IllegalArgumentException("Неизвестный тип DAO: " + backend);
+        }
+    }
+
+    private static ProductRecord newProduct(int number) {
+        return new ProductRecord(0, "Товар " + number, number % 1000, TAGS[number % TAGS.length]);
+    }
+}
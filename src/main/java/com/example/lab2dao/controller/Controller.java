@@ -1,24 +1,73 @@
 package com.example.lab2dao.controller;
 
+import com.example.lab2dao.dao.AsyncProductDao;
+import com.example.lab2dao.dao.CachingProductDao;
+import com.example.lab2dao.dao.CsvProductDaoImpl;
 import com.example.lab2dao.dao.ExcelProductDaoImpl;
+import com.example.lab2dao.dao.InstrumentedProductDao;
 import com.example.lab2dao.dao.PostgresProductDaoImpl;
+import com.example.lab2dao.dao.ProductChange;
+import com.example.lab2dao.dao.ProductChangeListener;
 import com.example.lab2dao.dao.ProductDao;
 import com.example.lab2dao.dao.ProductDaoImpl;
+import com.example.lab2dao.dao.ProductMigration;
+import com.example.lab2dao.dao.ProductSort;
+import com.example.lab2dao.model.PagedProductList;
 import com.example.lab2dao.model.Product;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import com.example.lab2dao.model.ProductRecord;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.util.Duration;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Контроллер для управления пользовательским интерфейсом приложения.
  * Обеспечивает взаимодействие между UI-компонентами и логикой работы с данными.
  */
 public class Controller {
-    private ProductDao productDao;
-    private final ObservableList<Product> productList = FXCollections.observableArrayList();
+    /** Размер кэша перед базой данных (записей по ID и суммарно строк в результатах запросов). */
+    private static final int DB_CACHE_SIZE = 100_000;
+    /** Время жизни записей кэша: изменения из других клиентов БД видны не позже этого срока. */
+    private static final java.time.Duration DB_CACHE_TTL = java.time.Duration.ofSeconds(30);
+    /** Число изменений от других клиентов БД, начиная с которого таблица перечитывается целиком. */
+    private static final int REMOTE_CHANGES_RELOAD_THRESHOLD = 500;
+    /** Количество строк таблицы, загружаемых одним запросом. */
+    private static final int TABLE_PAGE_SIZE = 100;
+    /** Запас строк до и после отображаемых, загружаемый заранее (больше высоты таблицы). */
+    private static final int TABLE_PREFETCH_ROWS = 100;
+    /** Максимальное количество страниц таблицы в памяти. */
+    private static final int TABLE_MAX_PAGES = 10;
+    /** Файл источника данных Excel. */
+    private static final String EXCEL_FILE = "products.xlsx";
+    /** Файл источника данных CSV. */
+    private static final String CSV_FILE = "products.csv";
+    /** Размер пакета переноса в файл: каждый пакет обходит весь снимок файла, а CSV-файл еще и переписывает. */
+    private static final int FILE_MIGRATION_BATCH_SIZE = 50_000;
+    /** Размер пакета переноса в БД (строк в одной транзакции). */
+    private static final int DB_MIGRATION_BATCH_SIZE = 1000;
+    /** Количество соединений, параллельно записывающих пакеты при переносе в БД. */
+    private static final int DB_MIGRATION_WRITER_THREADS = 4;
+
+    /** Операции с данными выполняются в фоне, результаты применяются в потоке JavaFX. */
+    private AsyncProductDao productDao;
+    /** Количество операций с данными, которые еще не завершились. */
+    private int operationsInFlight;
+    /** Строки таблицы: загружаются из источника данных страницами по мере прокрутки. */
+    private final PagedProductList productList = new PagedProductList(
+            TABLE_PAGE_SIZE, TABLE_PREFETCH_ROWS, TABLE_MAX_PAGES, Platform::runLater);
+    /** Порядок строк таблицы, по которому источник данных отдает страницы. */
+    private ProductSort tableSort = ProductSort.byId();
+    /** Хранилища, в которые можно перенести данные: подпись в списке → параметры переноса. */
+    private final Map<String, MigrationTarget> migrationTargets = new LinkedHashMap<>();
 
     @FXML
     private TableView<Product> productTable;
@@ -37,19 +86,35 @@ public class Controller {
     @FXML
     private TextField tagField;
     @FXML
+    private TextField deltaField;
+    @FXML
     private Button addButton;
     @FXML
     private Button updateButton;
     @FXML
     private Button deleteButton;
     @FXML
+    private Button adjustButton;
+    @FXML
     private ToggleGroup dataSourceToggle;
     @FXML
     private RadioButton memoryRadio;
     @FXML
     private RadioButton excelRadio;
     @FXML
+    private RadioButton csvRadio;
+    @FXML
     private RadioButton postgresRadio;
+    @FXML
+    private ProgressIndicator progressIndicator;
+    @FXML
+    private ComboBox<String> migrationTargetBox;
+    @FXML
+    private CheckBox fullCopyCheck;
+    @FXML
+    private Button migrateButton;
+    @FXML
+    private Label migrationStatusLabel;
 
     /**
      * Инициализация UI-компонентов и начальной конфигурации.
@@ -58,7 +123,9 @@ public class Controller {
      * <ul>
      *     <li>Группу переключателей для выбора источника данных</li>
      *     <li>Привязку колонок таблицы к свойствам объекта Product</li>
+     *     <li>Сортировку таблицы по колонке на стороне источника данных</li>
      *     <li>Обработчики событий для выбора элементов таблицы и изменения источника данных</li>
+     *     <li>Список хранилищ, в которые можно перенести данные текущего источника</li>
      *     <li>Подсказки для кнопок с задержкой отображения</li>
      * </ul>
      * Вызывается автоматически после загрузки FXML-файла.
@@ -69,10 +136,11 @@ public class Controller {
         ToggleGroup dataSourceToggle = new ToggleGroup();
         memoryRadio.setToggleGroup(dataSourceToggle);
         excelRadio.setToggleGroup(dataSourceToggle);
+        csvRadio.setToggleGroup(dataSourceToggle);
         postgresRadio.setToggleGroup(dataSourceToggle);
         memoryRadio.setSelected(true);
 
-        productDao = new ProductDaoImpl();
+        productDao = new AsyncProductDao(new InstrumentedProductDao(new ProductDaoImpl()));
 
         // Настройка колонок таблицы
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
@@ -80,6 +148,14 @@ public class Controller {
         quantityColumn.setCellValueFactory(new PropertyValueFactory<>("quantity"));
         tagColumn.setCellValueFactory(new PropertyValueFactory<>("tag"));
 
+        // Строки загружаются страницами, поэтому сортирует источник данных, а не таблица
+        productList.setOnLoadFailed(this::showDataSourceError);
+        productTable.setItems(productList);
+        productTable.setSortPolicy(table -> {
+            sortTable();
+            return true;
+        });
+
         // Загрузка данных
         refreshTable();
 
@@ -93,21 +169,65 @@ public class Controller {
 
         // Обработчик переключения источника данных
         dataSourceToggle.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
+            // Закрытие выполняется после уже начатых операций старого источника
+            productDao.close();
+            // Источник создается в фоне: подключение к БД и чтение файла не блокируют UI
             if (newToggle == memoryRadio) {
-                productDao = new ProductDaoImpl();
+                productDao = new AsyncProductDao(() -> new InstrumentedProductDao(new ProductDaoImpl()));
             } else if (newToggle == excelRadio) {
-                productDao = new ExcelProductDaoImpl();
-                productDao.setDataSource("products.xlsx");
+                productDao = new AsyncProductDao(() -> {
+                    InstrumentedProductDao dao = new InstrumentedProductDao(new ExcelProductDaoImpl());
+                    dao.setDataSource(EXCEL_FILE);
+                    return dao;
+                });
+            } else if (newToggle == csvRadio) {
+                productDao = new AsyncProductDao(() -> {
+                    InstrumentedProductDao dao = new InstrumentedProductDao(new CsvProductDaoImpl());
+                    dao.setDataSource(CSV_FILE);
+                    return dao;
+                });
             } else if (newToggle == postgresRadio) {
-                productDao = new PostgresProductDaoImpl();
+                RemoteChangeListener changeListener = new RemoteChangeListener();
+                productDao = new AsyncProductDao(() -> {
+                    PostgresProductDaoImpl postgres = new PostgresProductDaoImpl();
+                    // Метрики измеряют обращения к БД, поэтому кэш стоит перед инструментированием
+                    CachingProductDao cache = new CachingProductDao(
+                            new InstrumentedProductDao(postgres), DB_CACHE_SIZE, DB_CACHE_TTL);
+                    // Кэш подписан первым: он сбрасывается до того, как таблица перечитает строки
+                    postgres.addChangeListener(cache);
+                    postgres.addChangeListener(changeListener);
+                    return cache;
+                });
+                changeListener.source = productDao;
             }
             refreshTable();
         });
 
+        // Хранилища для переноса данных из текущего источника
+        migrationTargets.put(excelRadio.getText(), new MigrationTarget(() -> {
+            ExcelProductDaoImpl excel = new ExcelProductDaoImpl();
+            excel.setDataSource(EXCEL_FILE);
+            // Файл записывается один раз при закрытии приемника, а не на каждый пакет
+            excel.enableWriteBehind(java.time.Duration.ofMinutes(1), Integer.MAX_VALUE);
+            return excel;
+        }, FILE_MIGRATION_BATCH_SIZE, 1));
+        migrationTargets.put(csvRadio.getText(), new MigrationTarget(() -> {
+            CsvProductDaoImpl csv = new CsvProductDaoImpl();
+            csv.setDataSource(CSV_FILE);
+            return csv;
+        }, FILE_MIGRATION_BATCH_SIZE, 1));
+        migrationTargets.put(postgresRadio.getText(), new MigrationTarget(
+                PostgresProductDaoImpl::new, DB_MIGRATION_BATCH_SIZE, DB_MIGRATION_WRITER_THREADS));
+        migrationTargetBox.getItems().setAll(migrationTargets.keySet());
+        migrationTargetBox.getSelectionModel().selectFirst();
+
         // Настройка подсказок для кнопок с задержкой 3 секунды
         setupButtonTooltip(addButton, "Добавить новый товар в текущий источник данных");
         setupButtonTooltip(updateButton, "Обновить выбранный товар");
         setupButtonTooltip(deleteButton, "Удалить выбранный товар");
+        setupButtonTooltip(adjustButton, "Прибавить к остатку выбранного товара (расход - отрицательное число)");
+        setupButtonTooltip(migrateButton, "Записать товары текущего источника в выбранное хранилище с теми же ID "
+                + "(полная копия удаляет из хранилища остальные товары)");
     }
 
     /**
@@ -130,12 +250,159 @@ public class Controller {
     }
 
     /**
-     * Обновляет данные в таблице, загружая актуальную информацию из текущего источника данных.
-     * Автоматически вызывается при изменении источника данных или выполнении операций CRUD.
+     * Заново открывает таблицу на текущем источнике данных.
+     * Вызывается при запуске и при смене источника данных; после операций CRUD
+     * перечитываются только отображаемые строки ({@link #reloadRows()}).
+     *
+     * <p>Логика работы:
+     * <ol>
+     *     <li>Получает оценку количества строк (для PostgreSQL - из статистики, без обхода таблицы)</li>
+     *     <li>Открывает таблицу этого размера; видимые строки загружаются страницами</li>
+     *     <li>Уточняет размер таблицы точным количеством строк</li>
+     * </ol>
+     * Результаты, пришедшие после смены источника, отбрасываются.
      */
     private void refreshTable() {
-        productList.setAll(productDao.getAllProducts());
-        productTable.setItems(productList);
+        AsyncProductDao dao = productDao;
+        runInBackground(dao.estimateProductCount(), estimate -> {
+            if (dao == productDao) {
+                productList.reset(estimate, pageLoader(dao, tableSort));
+                // Первые страницы запрашиваются до точного подсчета, который может быть долгим
+                if (!productList.isEmpty()) {
+                    productList.get(0);
+                }
+                updateRowCount(dao);
+            }
+        });
+    }
+
+    /**
+     * Перечитывает отображаемые строки и количество строк после изменения данных.
+     * Прокрутка и выделение сохраняются.
+     */
+    private void reloadRows() {
+        productList.invalidate();
+        updateRowCount(productDao);
+    }
+
+    /**
+     * Уточняет размер таблицы точным количеством строк источника данных.
+     *
+     * @param dao источник данных, для которого открыта таблица
+     */
+    private void updateRowCount(AsyncProductDao dao) {
+        runInBackground(dao.countProducts(), count -> {
+            if (dao == productDao) {
+                productList.resize(count);
+            }
+        });
+    }
+
+    /**
+     * Применяет порядок, выбранный в заголовках таблицы: строки перечитываются
+     * из источника данных, отсортированные по первой колонке порядка.
+     */
+    private void sortTable() {
+        ProductSort sort = ProductSort.byId();
+        if (!productTable.getSortOrder().isEmpty()) {
+            TableColumn<Product, ?> column = productTable.getSortOrder().get(0);
+            ProductSort.Column sortColumn = column == nameColumn ? ProductSort.Column.NAME
+                    : column == quantityColumn ? ProductSort.Column.QUANTITY
+                    : column == tagColumn ? ProductSort.Column.TAG
+                    : ProductSort.Column.ID;
+            sort = new ProductSort(sortColumn, column.getSortType() == TableColumn.SortType.DESCENDING);
+        }
+        if (sort.equals(tableSort)) {
+            return;
+        }
+        tableSort = sort;
+        productList.reset(productList.size(), pageLoader(productDao, sort));
+        productTable.scrollTo(0);
+    }
+
+    /**
+     * @param dao источник данных
+     * @param sort порядок строк
+     * @return загрузчик страниц таблицы из источника данных в заданном порядке
+     */
+    private static PagedProductList.PageLoader pageLoader(AsyncProductDao dao, ProductSort sort) {
+        return (offset, limit) -> dao.getProductsPage(sort, offset, limit);
+    }
+
+    /**
+     * Применяет к таблице изменения, сделанные другими клиентами БД (и этим приложением).
+     * Если строки могли сдвинуться (добавление, удаление, изменение при сортировке
+     * не по ID или слишком много изменений), отображаемые строки перечитываются;
+     * иначе загруженные строки с измененными ID перечитываются по ID.
+     * Повторная обработка собственных изменений безопасна: строка просто заменяется.
+     *
+     * @param changes изменения из уведомлений PostgreSQL
+     */
+    private void applyRemoteChanges(List<ProductChange> changes) {
+        // Для каждого ID важна только последняя операция
+        Map<Integer, ProductChange> latest = new LinkedHashMap<>();
+        for (ProductChange change : changes) {
+            latest.remove(change.id());
+            latest.put(change.id(), change);
+        }
+        boolean rowsMoved = latest.size() >= REMOTE_CHANGES_RELOAD_THRESHOLD
+                || tableSort.column() != ProductSort.Column.ID
+                || latest.values().stream().anyMatch(change -> change.type() != ProductChange.Type.UPDATE);
+        if (rowsMoved) {
+            reloadRows();
+            return;
+        }
+        AsyncProductDao dao = productDao;
+        for (int id : latest.keySet()) {
+            if (productList.indexOfId(id) < 0) {
+                continue;
+            }
+            runInBackground(dao.getProductById(id), product -> {
+                if (dao == productDao) {
+                    product.ifPresentOrElse(productList::replaceRecord, this::reloadRows);
+                }
+            });
+        }
+    }
+
+    /**
+     * Показывает в таблице строку, измененную этим приложением.
+     * Строка заменяется на месте; если при текущей сортировке она могла сдвинуться,
+     * отображаемые строки перечитываются.
+     *
+     * @param product продукт, подтвержденный источником данных
+     */
+    private void showUpdatedProduct(ProductRecord product) {
+        if (!productList.replaceRecord(product) || tableSort.column() != ProductSort.Column.ID) {
+            productList.invalidate();
+        }
+    }
+
+    /**
+     * Отслеживает фоновую операцию с данными и применяет ее результат в потоке JavaFX.
+     *
+     * @param operation future операции {@link AsyncProductDao}
+     * @param onSuccess действие с результатом, выполняется в потоке JavaFX
+     *
+     * <p>Особенности реализации:
+     * <ul>
+     *     <li>Индикатор прогресса виден, пока есть незавершенные операции</li>
+     *     <li>Ошибка операции показывается пользователю вместо вызова onSuccess</li>
+     * </ul>
+     */
+    private <T> void runInBackground(CompletableFuture<T> operation, Consumer<T> onSuccess) {
+        operationsInFlight++;
+        progressIndicator.setVisible(true);
+        operation.whenCompleteAsync((result, error) -> {
+            if (--operationsInFlight == 0) {
+                progressIndicator.setVisible(false);
+            }
+            if (error != null) {
+                showDataSourceError(error);
+            } else {
+                onSuccess.accept(result);
+            }
+        }, Platform::runLater);
     }
 
     /**
@@ -177,24 +444,27 @@ public class Controller {
      * <p>Логика работы:
      * <ol>
      *     <li>Проверяет валидность ввода количества</li>
-     *     <li>Создает новый объект Product</li>
-     *     <li>Добавляет продукт через DAO</li>
-     *     <li>Обновляет таблицу</li>
-     *     <li>Очищает поля ввода</li>
+     *     <li>Создает новую запись ProductRecord</li>
+     *     <li>Добавляет продукт через DAO в фоне</li>
+     *     <li>После успешного добавления перечитывает отображаемые строки и очищает поля ввода</li>
      * </ol>
      */
     @FXML
     private void handleAdd() {
         try {
-            Product product = new Product(
+            ProductRecord product = new ProductRecord(
                     0, // ID будет установлен DAO
                     nameField.getText(),
                     Integer.parseInt(quantityField.getText()),
                     tagField.getText()
             );
-            productDao.addProduct(product);
-            refreshTable();
-            clearFields();
+            AsyncProductDao dao = productDao;
+            runInBackground(dao.addProduct(product), added -> {
+                if (dao == productDao) {
+                    reloadRows();
+                }
+                clearFields();
+            });
         } catch (NumberFormatException e) {
             showAlert("Ошибка ввода", "Пожалуйста, введите корректное количество (число).");
         }
@@ -212,10 +482,10 @@ public class Controller {
      * <ol>
      *     <li>Проверяет наличие выбранного продукта</li>
      *     <li>Проверяет валидность ввода количества</li>
-     *     <li>Обновляет данные продукта</li>
-     *     <li>Сохраняет изменения через DAO</li>
-     *     <li>Обновляет таблицу</li>
-     *     <li>Очищает поля ввода</li>
+     *     <li>Создает копию продукта с новыми данными (объект в таблице не меняется
+     *     до подтверждения источником данных)</li>
+     *     <li>Сохраняет изменения через DAO в фоне</li>
+     *     <li>После успешного сохранения заменяет строку в таблице и очищает поля ввода</li>
      * </ol>
      */
     @FXML
@@ -223,12 +493,19 @@ public class Controller {
         Product selectedProduct = productTable.getSelectionModel().getSelectedItem();
         if (selectedProduct != null) {
             try {
-                selectedProduct.setName(nameField.getText());
-                selectedProduct.setQuantity(Integer.parseInt(quantityField.getText()));
-                selectedProduct.setTag(tagField.getText());
-                productDao.updateProduct(selectedProduct);
-                refreshTable();
-                clearFields();
+                ProductRecord product = new ProductRecord(
+                        selectedProduct.getId(),
+                        nameField.getText(),
+                        Integer.parseInt(quantityField.getText()),
+                        tagField.getText()
+                );
+                AsyncProductDao dao = productDao;
+                runInBackground(dao.updateProduct(product), updated -> {
+                    if (dao == productDao) {
+                        showUpdatedProduct(updated);
+                    }
+                    clearFields();
+                });
             } catch (NumberFormatException e) {
                 showAlert("Ошибка ввода", "Пожалуйста, введите корректное количество (число).");
             }
@@ -244,23 +521,128 @@ public class Controller {
      * <p>Логика работы:
      * <ol>
      *     <li>Проверяет наличие выбранного продукта</li>
-     *     <li>Удаляет продукт через DAO</li>
-     *     <li>Обновляет таблицу</li>
-     *     <li>Очищает поля ввода</li>
+     *     <li>Удаляет продукт через DAO в фоне</li>
+     *     <li>После успешного удаления перечитывает отображаемые строки и очищает поля ввода</li>
      * </ol>
      */
     @FXML
     private void handleDelete() {
         Product selectedProduct = productTable.getSelectionModel().getSelectedItem();
         if (selectedProduct != null) {
-            productDao.deleteProduct(selectedProduct.getId());
-            refreshTable();
-            clearFields();
+            int id = selectedProduct.getId();
+            AsyncProductDao dao = productDao;
+            runInBackground(dao.deleteProduct(id), deleted -> {
+                if (dao == productDao) {
+                    reloadRows();
+                }
+                clearFields();
+            });
         } else {
             showAlert("Не выбрано", "Пожалуйста, выберите товар для удаления.");
         }
     }
 
+    /**
+     * Обрабатывает событие изменения остатка выбранного продукта.
+     * Количество изменяется атомарно на стороне источника данных, поэтому
+     * одновременные приходы и расходы с разных рабочих мест не теряются.
+     *
+     * <p>Логика работы:
+     * <ol>
+     *     <li>Проверяет наличие выбранного продукта и валидность изменения</li>
+     *     <li>Изменяет количество через DAO в фоне; расход больше остатка отклоняется</li>
+     *     <li>После успешного изменения заменяет строку в таблице и очищает поле изменения</li>
+     * </ol>
+     */
+    @FXML
+    private void handleAdjust() {
+        Product selectedProduct = productTable.getSelectionModel().getSelectedItem();
+        if (selectedProduct == null) {
+            showAlert("Не выбрано", "Пожалуйста, выберите товар для изменения остатка.");
+            return;
+        }
+        int delta;
+        try {
+            delta = Integer.parseInt(deltaField.getText().trim());
+        } catch (NumberFormatException e) {
+            showAlert("Ошибка ввода", "Пожалуйста, введите изменение количества (целое число, расход - со знаком минус).");
+            return;
+        }
+        int id = selectedProduct.getId();
+        AsyncProductDao dao = productDao;
+        runInBackground(dao.adjustQuantity(id, delta, true), quantity -> {
+            if (dao == productDao) {
+                int index = productList.indexOfId(id);
+                if (quantity.isEmpty()) {
+                    // Товар успели удалить
+                    reloadRows();
+                } else if (index >= 0) {
+                    showUpdatedProduct(productList.getRecord(index).withQuantity(quantity.getAsInt()));
+                }
+            }
+            deltaField.clear();
+        });
+    }
+
+    /**
+     * Обрабатывает перенос товаров текущего источника данных в выбранное хранилище.
+     *
+     * <p>Логика работы:
+     * <ol>
+     *     <li>Проверяет, что хранилище отличается от текущего источника</li>
+     *     <li>Выполняет перенос в фоне: источник читается потоком, пакеты записываются
+     *     в хранилище параллельно ({@link ProductMigration})</li>
+     *     <li>Показывает ход переноса и скорость записи; кнопка недоступна до окончания</li>
+     * </ol>
+     * Текущий источник и таблица не меняются.
+     */
+    @FXML
+    private void handleMigrate() {
+        String targetName = migrationTargetBox.getValue();
+        if (memoryRadio.getToggleGroup().getSelectedToggle() instanceof RadioButton source
+                && source.getText().equals(targetName)) {
+            showAlert("Ошибка", "Выберите хранилище, отличное от текущего источника данных");
+            return;
+        }
+        MigrationTarget target = migrationTargets.get(targetName);
+        ProductMigration migration = ProductMigration.of(fullCopyCheck.isSelected()
+                        ? ProductMigration.Mode.FULL_COPY : ProductMigration.Mode.UPSERT)
+                .withBatchSize(target.batchSize())
+                .withWriterThreads(target.writerThreads());
+        CompletableFuture<ProductMigration.Progress> copy = productDao.copyTo(target.factory(), migration,
+                progress -> Platform.runLater(() -> showMigrationProgress(progress)));
+        migrateButton.setDisable(true);
+        migrationStatusLabel.setText("Перенос в " + targetName + "...");
+        copy.whenCompleteAsync((result, error) -> migrateButton.setDisable(false), Platform::runLater);
+        runInBackground(copy, this::showMigrationProgress);
+    }
+
+    /**
+     * Показывает ход переноса данных рядом с кнопкой переноса.
+     *
+     * @param progress ход или итог переноса
+     */
+    private void showMigrationProgress(ProductMigration.Progress progress) {
+        String text = String.format("%s %,d из ~%,d товаров (%,.0f строк/с)",
+                progress.finished() ? "Перенесено" : "Идет перенос:", progress.rowsWritten(),
+                progress.expectedRows(), progress.rowsPerSecond());
+        if (progress.rowsDeleted() > 0) {
+            text += String.format(", удалено лишних: %,d", progress.rowsDeleted());
+        }
+        migrationStatusLabel.setText(text);
+    }
+
+    /**
+     * Сообщает об ошибке источника данных (БД недоступна, файл не читается и т.п.).
+     *
+     * @param error исключение, выброшенное DAO (обертка CompletionException снимается)
+     */
+    private void showDataSourceError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        showAlert("Ошибка источника данных", cause.getMessage());
+    }
+
     /**
      * Отображает диалоговое окно с предупреждением.
      *
@@ -281,4 +663,42 @@ public class Controller {
         alert.setContentText(message);
         alert.showAndWait();
     }
+
+    /**
+     * Хранилище для переноса данных.
+     *
+     * @param factory создание DAO хранилища (выполняется в фоне)
+     * @param batchSize размер пакета записи
+     * @param writerThreads количество потоков записи (больше одного - только для БД)
+     */
+    private record MigrationTarget(Supplier<ProductDao> factory, int batchSize, int writerThreads) {
+    }
+
+    /**
+     * Подписчик на уведомления PostgreSQL об изменениях таблицы products.
+     * Обработка переносится в поток JavaFX; уведомления источника данных,
+     * который уже не выбран, игнорируются.
+     */
+    private class RemoteChangeListener implements ProductChangeListener {
+        /** DAO, для которого создан подписчик; задается и читается в потоке JavaFX. */
+        private AsyncProductDao source;
+
+        @Override
+        public void onProductsChanged(List<ProductChange> changes) {
+            Platform.runLater(() -> {
+                if (source == productDao) {
+                    applyRemoteChanges(changes);
+                }
+            });
+        }
+
+        @Override
+        public void onChangesLost() {
+            Platform.runLater(() -> {
+                if (source == productDao) {
+                    reloadRows();
+                }
+            });
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,338 @@
+/**
+ * Асинхронная обертка над ProductDao: операции выполняются на виртуальных потоках
+ * и возвращают {@link CompletableFuture}, не блокируя вызывающий поток (например, поток JavaFX).
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Каждая операция выполняется в отдельном виртуальном потоке
+ *     ({@link Executors#newVirtualThreadPerTaskExecutor()})</li>
+ *     <li>Операции выполняются строго по очереди в порядке вызова: исходный DAO
+ *     не обязан быть потокобезопасным, а чтение после записи видит ее результат</li>
+ *     <li>Ошибка операции завершает только ее future и не останавливает очередь</li>
+ *     <li>Операция, future которой отменен до ее начала, пропускается: так можно снять
+ *     из очереди уже ненужные чтения (например, страницы, которые прокручены мимо)</li>
+ *     <li>Исходный DAO можно создавать в фоне ({@link #AsyncProductDao(Supplier)}):
+ *     подключение к БД или чтение файла тоже не блокирует вызывающий поток</li>
+ *     <li>Результаты передаются в потоке, выполнившем операцию; для обновления UI
+ *     используйте {@code thenAcceptAsync(..., Platform::runLater)} и аналоги</li>
+ * </ul>
+ *
+ * @see ProductDao
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class AsyncProductDao implements AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(AsyncProductDao.class.getName());
+    private volatile ProductDao delegate;
+    private volatile RuntimeException creationError;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+    private boolean closed;
+
+    /**
+     * @param delegate DAO, операции которого выполняются асинхронно
+     */
+    public AsyncProductDao(ProductDao delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Создает исходный DAO первой операцией очереди, не дожидаясь ее выполнения.
+     * Если создание завершилось ошибкой, она передается во future всех последующих операций.
+     * @param factory создание исходного DAO (подключение к БД, выбор файла и т.п.);
+     *                null вместо DAO считается ошибкой создания ({@link IllegalStateException})
+     */
+    public AsyncProductDao(Supplier<? extends ProductDao> factory) {
+        submit(() -> {
+            try {
+                ProductDao created = factory.get();
+                if (created == null) {
+                    throw new IllegalStateException("Фабрика источника данных вернула null");
+                }
+                delegate = created;
+            } catch (RuntimeException e) {
+                creationError = e;
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Асинхронно добавляет продукт.
+     * @param product добавляемый продукт
+     * @return future с добавленным продуктом, получившим ID
+     */
+    public CompletableFuture<ProductRecord> addProduct(ProductRecord product) {
+        return submit(() -> delegate().addProduct(product));
+    }
+
+    /**
+     * Асинхронно обновляет продукт.
+     * @param product продукт с обновленными данными
+     * @return future с тем же продуктом
+     */
+    public CompletableFuture<ProductRecord> updateProduct(ProductRecord product) {
+        return submit(() -> {
+            delegate().updateProduct(product);
+            return product;
+        });
+    }
+
+    /**
+     * Асинхронно удаляет продукт.
+     * @param id идентификатор удаляемого продукта
+     * @return future, завершающийся после удаления
+     */
+    public CompletableFuture<Void> deleteProduct(int id) {
+        return submit(() -> {
+            delegate().deleteProduct(id);
+            return null;
+        });
+    }
+
+    /**
+     * Асинхронно добавляет набор продуктов одной пакетной операцией.
+     * @param products добавляемые продукты
+     * @return future с добавленными продуктами, получившими ID
+     */
+    public CompletableFuture<List<ProductRecord>> addProducts(Collection<ProductRecord> products) {
+        return submit(() -> delegate().addProducts(products));
+    }
+
+    /**
+     * Асинхронно обновляет набор продуктов одной пакетной операцией.
+     * @param products продукты с обновленными данными
+     * @return future, завершающийся после обновления
+     */
+    public CompletableFuture<Void> updateProducts(Collection<ProductRecord> products) {
+        return submit(() -> {
+            delegate().updateProducts(products);
+            return null;
+        });
+    }
+
+    /**
+     * Асинхронно записывает набор продуктов с их ID одной пакетной операцией.
+     * @param products продукты с положительными неповторяющимися ID
+     * @return future, завершающийся после записи
+     * @see ProductDao#upsertProducts(Collection)
+     */
+    public CompletableFuture<Void> upsertProducts(Collection<ProductRecord> products) {
+        return submit(() -> {
+            delegate().upsertProducts(products);
+            return null;
+        });
+    }
+
+    /**
+     * Асинхронно удаляет набор продуктов одной пакетной операцией.
+     * @param ids идентификаторы удаляемых продуктов
+     * @return future, завершающийся после удаления
+     */
+    public CompletableFuture<Void> deleteProducts(Collection<Integer> ids) {
+        return submit(() -> {
+            delegate().deleteProducts(ids);
+            return null;
+        });
+    }
+
+    /**
+     * Асинхронно получает список всех продуктов.
+     * @return future со списком продуктов
+     */
+    public CompletableFuture<List<ProductRecord>> getAllProducts() {
+        return submit(() -> delegate().getAllProducts());
+    }
+
+    /**
+     * Асинхронно получает страницу продуктов.
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество продуктов на странице
+     * @return future со страницей продуктов
+     */
+    public CompletableFuture<List<ProductRecord>> getProductsAfter(int afterId, int limit) {
+        return submit(() -> delegate().getProductsAfter(afterId, limit));
+    }
+
+    /**
+     * Асинхронно получает страницу продуктов в заданном порядке.
+     * @param sort порядок строк
+     * @param offset количество пропускаемых строк
+     * @param limit максимальное количество продуктов на странице
+     * @return future со страницей продуктов
+     */
+    public CompletableFuture<List<ProductRecord>> getProductsPage(ProductSort sort, int offset, int limit) {
+        return submit(() -> delegate().getProductsPage(sort, offset, limit));
+    }
+
+    /**
+     * Асинхронно считает продукты.
+     * @return future с точным количеством продуктов
+     */
+    public CompletableFuture<Integer> countProducts() {
+        return submit(() -> delegate().countProducts());
+    }
+
+    /**
+     * Асинхронно оценивает количество продуктов.
+     * @return future с оценкой количества продуктов
+     * @see ProductDao#estimateProductCount()
+     */
+    public CompletableFuture<Integer> estimateProductCount() {
+        return submit(() -> delegate().estimateProductCount());
+    }
+
+    /**
+     * Асинхронно находит продукты по запросу.
+     * @param query критерии поиска
+     * @return future с подходящими продуктами
+     */
+    public CompletableFuture<List<ProductRecord>> findProducts(ProductQuery query) {
+        return submit(() -> delegate().findProducts(query));
+    }
+
+    /**
+     * Асинхронно находит продукт по ID.
+     * @param id идентификатор продукта
+     * @return future с найденным продуктом или пустым Optional
+     */
+    public CompletableFuture<Optional<ProductRecord>> getProductById(int id) {
+        return submit(() -> delegate().getProductById(id));
+    }
+
+    /**
+     * Асинхронно изменяет количество продукта.
+     * @param id идентификатор продукта
+     * @param delta изменение количества
+     * @param nonNegative true, если количество не может стать отрицательным
+     * @return future с новым количеством или пустым OptionalInt, если продукта нет
+     * @see ProductDao#adjustQuantity(int, int, boolean)
+     */
+    public CompletableFuture<OptionalInt> adjustQuantity(int id, int delta, boolean nonNegative) {
+        return submit(() -> delegate().adjustQuantity(id, delta, nonNegative));
+    }
+
+    /**
+     * Асинхронно переносит продукты исходного DAO в другое хранилище.
+     * Перенос занимает очередь до своего окончания: последующие операции видят
+     * исходный DAO уже после переноса, а источник не меняется во время чтения.
+     * @param target создание приемника; приемник, реализующий {@link AutoCloseable},
+     *               закрывается после переноса
+     * @param migration параметры переноса
+     * @param onProgress получатель хода переноса (вызывается из рабочих потоков переноса)
+     * @return future с итогом переноса
+     * @see ProductMigration#run(ProductDao, ProductDao, Consumer)
+     */
+    public CompletableFuture<ProductMigration.Progress> copyTo(Supplier<? extends ProductDao> target,
+                                                               ProductMigration migration,
+                                                               Consumer<ProductMigration.Progress> onProgress) {
+        return submit(() -> {
+            ProductDao destination = target.get();
+            try {
+                return migration.run(delegate(), destination, onProgress);
+            } finally {
+                if (destination instanceof AutoCloseable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Ошибка закрытия DAO", e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Асинхронно переключает исходный DAO на другой источник данных.
+     * @param source идентификатор источника данных
+     * @return future, завершающийся после переключения
+     */
+    public CompletableFuture<Void> setDataSource(String source) {
+        return submit(() -> {
+            delegate().setDataSource(source);
+            return null;
+        });
+    }
+
+    /**
+     * Ставит в очередь закрытие исходного DAO и возвращается, не дожидаясь его.
+     * Операции, вызванные до закрытия, выполняются; новые операции завершаются
+     * с {@link IllegalStateException}. Ошибка закрытия исходного DAO записывается в журнал.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<Void> closing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closing = submit(() -> {
+                if (delegate instanceof AutoCloseable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Ошибка закрытия DAO", e);
+                    }
+                }
+                return null;
+            });
+            closed = true;
+        }
+        closing.whenComplete((result, error) -> {
+            if (error != null) {
+                LOGGER.log(System.Logger.Level.ERROR, "Ошибка закрытия источника данных", error);
+            }
+            executor.shutdown();
+        });
+    }
+
+    /**
+     * @return исходный DAO
+     * @throws IllegalStateException если исходный DAO не удалось создать
+     */
+    private ProductDao delegate() {
+        ProductDao dao = delegate;
+        if (dao == null) {
+            throw new IllegalStateException("Источник данных не создан: " + creationError.getMessage(), creationError);
+        }
+        return dao;
+    }
+
+    /**
+     * Ставит операцию в очередь после предыдущей (независимо от ее результата).
+     * Очередь строится на внутренних future, поэтому отмена возвращенного future
+     * не нарушает порядок: следующая операция все равно ждет предыдущую.
+     * @param operation операция над исходным DAO
+     * @return future с результатом операции
+     */
+    private synchronized <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("DAO уже закрыт"));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tail = tail.handleAsync((previous, error) -> {
+            if (!result.isDone()) {
+                try {
+                    result.complete(operation.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }
+            return null;
+        }, executor);
+        return result;
+    }
+}
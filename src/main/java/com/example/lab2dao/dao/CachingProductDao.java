@@ -0,0 +1,508 @@
+/**
+ * Кэширующий декоратор для любой реализации ProductDao.
+ * Повторные чтения неизменившихся данных (например, обновление таблицы в UI)
+ * обслуживаются из памяти без обращения к БД или разбора файла.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Два кэша: продукты по ID (включая отсутствующие ID) и результаты списков,
+ *     страниц и запросов {@link ProductQuery}; количество продуктов не кэшируется</li>
+ *     <li>Ограниченный размер с вытеснением давно не использовавшихся записей (LRU):
+ *     кэш по ID ограничен количеством записей, кэш результатов - суммарным количеством строк</li>
+ *     <li>Время жизни записей (TTL): по его истечении данные читаются заново</li>
+ *     <li>Сквозная запись: изменения передаются в исходный DAO, затем
+ *     затронутые ID и все закэшированные списки сбрасываются</li>
+ *     <li>Счетчики попаданий, промахов и вытеснений ({@link #getStatistics()})</li>
+ *     <li>Потокобезопасная реализация: блокировка держится только на время обращения
+ *     к кэшу, исходный DAO вызывается без нее, поэтому промахи разных потоков
+ *     выполняются параллельно</li>
+ *     <li>Каждый сброс увеличивает номер версии кэша; результат, загруженный
+ *     до сброса, в кэш не кладется, поэтому устаревшие данные не переживают изменение</li>
+ *     <li>Списки возвращаются неизменяемыми и без копирования</li>
+ * </ul>
+ *
+ * <p>Изменения, сделанные в обход декоратора (другим процессом или напрямую
+ * через исходный DAO), становятся видны после истечения TTL или {@link #invalidateAll()}.
+ * Для PostgreSQL кэш можно подписать на уведомления об изменениях
+ * ({@link PostgresProductDaoImpl#addChangeListener(ProductChangeListener)}):
+ * тогда измененные другими клиентами записи сбрасываются сразу.
+ *
+ * @see ProductDao
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+public class CachingProductDao implements ProductDao, ProductChangeListener, AutoCloseable {
+    /** Ключ кэша результатов для {@link #getAllProducts()}. */
+    private static final Object ALL_PRODUCTS = new Object();
+
+    private final ProductDao delegate;
+    private final long ttlNanos;
+    private final LruCache<Integer, Optional<ProductRecord>> productsById;
+    private final LruCache<Object, List<ProductRecord>> results;
+    /** Защищает кэши, счетчики и версию; исходный DAO под ней не вызывается. */
+    private final Object lock = new Object();
+
+    /** Номер версии данных кэша; увеличивается при каждом сбросе. */
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Создает кэш перед указанным DAO.
+     * @param delegate исходный DAO, в который передаются все промахи и изменения
+     * @param maxEntries максимальное число записей в кэше по ID и суммарное число строк
+     *                   в кэше результатов; результат длиннее этого числа не кэшируется
+     * @param ttl время жизни записи кэша
+     * @throws IllegalArgumentException если maxEntries меньше 1 или ttl не положительный
+     */
+    public CachingProductDao(ProductDao delegate, int maxEntries, Duration ttl) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Время жизни записей должно быть положительным");
+        }
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.productsById = new LruCache<>(maxEntries, value -> 1);
+        this.results = new LruCache<>(maxEntries, value -> Math.max(value.size(), 1));
+    }
+
+    /**
+     * Добавляет продукт через исходный DAO и сбрасывает закэшированные списки.
+     * @param product добавляемый продукт
+     * @return добавленный продукт с присвоенным ID
+     */
+    @Override
+    public ProductRecord addProduct(ProductRecord product) {
+        ProductRecord added = null;
+        try {
+            added = delegate.addProduct(product);
+            return added;
+        } finally {
+            invalidate(added == null ? List.of() : List.of(added.id()));
+        }
+    }
+
+    /**
+     * Обновляет продукт через исходный DAO и сбрасывает его запись и закэшированные списки.
+     * @param product продукт с обновленными данными
+     */
+    @Override
+    public void updateProduct(ProductRecord product) {
+        try {
+            delegate.updateProduct(product);
+        } finally {
+            invalidate(List.of(product.id()));
+        }
+    }
+
+    /**
+     * Удаляет продукт через исходный DAO и сбрасывает его запись и закэшированные списки.
+     * @param id идентификатор удаляемого продукта
+     */
+    @Override
+    public void deleteProduct(int id) {
+        try {
+            delegate.deleteProduct(id);
+        } finally {
+            invalidate(List.of(id));
+        }
+    }
+
+    /**
+     * Добавляет набор продуктов одной пакетной операцией исходного DAO.
+     * @param products добавляемые продукты
+     * @return добавленные продукты с присвоенными ID
+     */
+    @Override
+    public List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> added = List.of();
+        try {
+            added = delegate.addProducts(products);
+            return added;
+        } finally {
+            invalidate(added.stream().map(ProductRecord::id).toList());
+        }
+    }
+
+    /**
+     * Обновляет набор продуктов одной пакетной операцией исходного DAO.
+     * @param products продукты с обновленными данными
+     */
+    @Override
+    public void updateProducts(Collection<ProductRecord> products) {
+        try {
+            delegate.updateProducts(products);
+        } finally {
+            invalidate(products.stream().map(ProductRecord::id).toList());
+        }
+    }
+
+    /**
+     * Записывает набор продуктов с их ID одной пакетной операцией исходного DAO.
+     * @param products продукты с положительными неповторяющимися ID
+     */
+    @Override
+    public void upsertProducts(Collection<ProductRecord> products) {
+        try {
+            delegate.upsertProducts(products);
+        } finally {
+            invalidate(products.stream().map(ProductRecord::id).toList());
+        }
+    }
+
+    /**
+     * Удаляет набор продуктов одной пакетной операцией исходного DAO.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public void deleteProducts(Collection<Integer> ids) {
+        try {
+            delegate.deleteProducts(ids);
+        } finally {
+            invalidate(ids);
+        }
+    }
+
+    /**
+     * Изменяет количество через исходный DAO и сбрасывает запись продукта и закэшированные списки.
+     * @param id идентификатор продукта
+     * @param delta изменение количества
+     * @param nonNegative true, если количество не может стать отрицательным
+     * @return новое количество или пустой OptionalInt, если продукта нет
+     */
+    @Override
+    public OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        try {
+            return delegate.adjustQuantity(id, delta, nonNegative);
+        } finally {
+            invalidate(List.of(id));
+        }
+    }
+
+    /**
+     * Возвращает список всех продуктов из кэша или из исходного DAO.
+     * @return неизменяемый список продуктов
+     */
+    @Override
+    public List<ProductRecord> getAllProducts() {
+        return cachedResult(ALL_PRODUCTS, delegate::getAllProducts);
+    }
+
+    /**
+     * Возвращает поток по закэшированному списку всех продуктов, если он есть;
+     * иначе поток исходного DAO (потоковое чтение не кэшируется).
+     * @return поток продуктов
+     */
+    @Override
+    public Stream<ProductRecord> streamProducts() {
+        synchronized (lock) {
+            List<ProductRecord> cached = results.get(ALL_PRODUCTS);
+            if (cached != null) {
+                hits++;
+                return cached.stream();
+            }
+            misses++;
+        }
+        return delegate.streamProducts();
+    }
+
+    /**
+     * Возвращает страницу продуктов из кэша или из исходного DAO.
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество продуктов на странице
+     * @return неизменяемый список с продуктами страницы
+     */
+    @Override
+    public List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        return cachedResult(new PageKey(afterId, limit), () -> delegate.getProductsAfter(afterId, limit));
+    }
+
+    /**
+     * Возвращает результат запроса из кэша или из исходного DAO.
+     * @param query критерии поиска
+     * @return неизменяемый список с подходящими продуктами
+     */
+    @Override
+    public List<ProductRecord> findProducts(ProductQuery query) {
+        return cachedResult(query, () -> delegate.findProducts(query));
+    }
+
+    /**
+     * Возвращает страницу в заданном порядке из кэша или из исходного DAO.
+     * @param sort порядок строк
+     * @param offset количество пропускаемых строк
+     * @param limit максимальное количество продуктов на странице
+     * @return неизменяемый список с продуктами страницы
+     */
+    @Override
+    public List<ProductRecord> getProductsPage(ProductSort sort, int offset, int limit) {
+        return cachedResult(new SortedPageKey(sort, offset, limit),
+                () -> delegate.getProductsPage(sort, offset, limit));
+    }
+
+    /**
+     * Возвращает количество продуктов исходного DAO (не кэшируется).
+     * @return количество продуктов
+     */
+    @Override
+    public int countProducts() {
+        return delegate.countProducts();
+    }
+
+    /**
+     * Возвращает оценку количества продуктов исходного DAO (не кэшируется).
+     * @return оценка количества продуктов
+     */
+    @Override
+    public int estimateProductCount() {
+        return delegate.estimateProductCount();
+    }
+
+    /**
+     * Находит продукт по ID в кэше или в исходном DAO.
+     * Отсутствие продукта тоже кэшируется до изменения этого ID или истечения TTL.
+     * @param id идентификатор продукта
+     * @return найденный продукт или пустой Optional
+     */
+    @Override
+    public Optional<ProductRecord> getProductById(int id) {
+        long loadedVersion;
+        synchronized (lock) {
+            Optional<ProductRecord> cached = productsById.get(id);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadedVersion = version;
+        }
+        Optional<ProductRecord> loaded = delegate.getProductById(id);
+        synchronized (lock) {
+            if (version == loadedVersion) {
+                productsById.put(id, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Переключает исходный DAO на другой источник и полностью очищает кэш.
+     * @param source идентификатор источника данных
+     */
+    @Override
+    public void setDataSource(String source) {
+        try {
+            delegate.setDataSource(source);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Сбрасывает записи измененных продуктов и все закэшированные списки.
+     * @param changes изменения, полученные от источника уведомлений
+     */
+    @Override
+    public void onProductsChanged(List<ProductChange> changes) {
+        invalidate(changes.stream().map(ProductChange::id).toList());
+    }
+
+    /**
+     * Полностью очищает кэш: часть изменений могла быть пропущена.
+     */
+    @Override
+    public void onChangesLost() {
+        invalidateAll();
+    }
+
+    /**
+     * Полностью очищает кэш (счетчики сохраняются).
+     * Используется, если данные изменены в обход декоратора.
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            version++;
+            productsById.clear();
+            results.clear();
+        }
+    }
+
+    /**
+     * Возвращает текущие значения счетчиков кэша.
+     * @return снимок счетчиков
+     */
+    public CacheStatistics getStatistics() {
+        synchronized (lock) {
+            return new CacheStatistics(hits, misses, evictions);
+        }
+    }
+
+    /**
+     * Очищает кэш и закрывает исходный DAO, если он владеет ресурсами.
+     * @throws Exception ошибка закрытия исходного DAO
+     */
+    @Override
+    public void close() throws Exception {
+        invalidateAll();
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Сбрасывает записи указанных ID и все закэшированные списки.
+     * @param ids идентификаторы измененных продуктов
+     */
+    private void invalidate(Collection<Integer> ids) {
+        synchronized (lock) {
+            version++;
+            results.clear();
+            for (Integer id : ids) {
+                productsById.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Возвращает результат из кэша или загружает его из исходного DAO без блокировки.
+     * Загруженный результат кэшируется, только если за время загрузки кэш не сбрасывался.
+     */
+    private List<ProductRecord> cachedResult(Object key, ResultLoader loader) {
+        long loadedVersion;
+        synchronized (lock) {
+            List<ProductRecord> cached = results.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadedVersion = version;
+        }
+        List<ProductRecord> loaded = List.copyOf(loader.load());
+        synchronized (lock) {
+            if (version == loadedVersion) {
+                results.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Загрузка результата из исходного DAO при промахе.
+     */
+    @FunctionalInterface
+    private interface ResultLoader {
+        List<ProductRecord> load();
+    }
+
+    /**
+     * Ключ кэша для страницы {@link #getProductsAfter(int, int)}.
+     */
+    private record PageKey(int afterId, int limit) {
+    }
+
+    /**
+     * Ключ кэша для страницы {@link #getProductsPage(ProductSort, int, int)}.
+     */
+    private record SortedPageKey(ProductSort sort, int offset, int limit) {
+    }
+
+    /**
+     * Значение кэша вместе с его весом и моментом истечения срока жизни.
+     */
+    private record Entry<V>(V value, int weight, long expiresAt) {
+    }
+
+    /**
+     * Счетчики кэша.
+     * @param hits количество запросов, обслуженных из кэша
+     * @param misses количество запросов, переданных исходному DAO
+     * @param evictions количество записей, вытесненных из-за ограничения размера
+     */
+    public record CacheStatistics(long hits, long misses, long evictions) {
+        /**
+         * @return доля попаданий от 0 до 1 (0, если запросов не было)
+         */
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    /**
+     * LRU-кэш ограниченного суммарного веса на LinkedHashMap в порядке доступа.
+     * Просроченные записи удаляются при обращении к ним. Не потокобезопасен:
+     * используется под блокировкой декоратора.
+     */
+    private final class LruCache<K, V> {
+        private final Map<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxWeight;
+        private final ToIntFunction<V> weigher;
+        private long weight;
+
+        LruCache(int maxWeight, ToIntFunction<V> weigher) {
+            this.maxWeight = maxWeight;
+            this.weigher = weigher;
+        }
+
+        V get(K key) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+
+        /**
+         * Кладет значение и вытесняет давно не использовавшиеся записи сверх предела.
+         * Значение тяжелее всего кэша не кладется.
+         */
+        void put(K key, V value) {
+            int valueWeight = weigher.applyAsInt(value);
+            remove(key);
+            if (valueWeight > maxWeight) {
+                return;
+            }
+            entries.put(key, new Entry<>(value, valueWeight, System.nanoTime() + ttlNanos));
+            weight += valueWeight;
+            Iterator<Entry<V>> eldest = entries.values().iterator();
+            while (weight > maxWeight) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+                evictions++;
+            }
+        }
+
+        void remove(K key) {
+            Entry<V> removed = entries.remove(key);
+            if (removed != null) {
+                weight -= removed.weight();
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            weight = 0;
+        }
+    }
+}
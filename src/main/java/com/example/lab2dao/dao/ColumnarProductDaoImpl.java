@@ -0,0 +1,544 @@
+/**
+ * Колоночная in-memory реализация интерфейса ProductDao для каталогов
+ * из миллионов товаров.
+ *
+ * <p>Вместо хранения объекта {@link ProductRecord} на каждую строку
+ * данные раскладываются по примитивным колонкам:
+ * <ul>
+ *     <li>id и quantity - массивы int</li>
+ *     <li>tag - словарное кодирование: массив int-кодов и словарь уникальных тегов</li>
+ *     <li>name - байты UTF-8 в общем буфере (в куче или вне кучи) со смещениями и длинами</li>
+ * </ul>
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Записи ProductRecord создаются только при чтении строк</li>
+ *     <li>Первичный индекс ID → строка на примитивных int</li>
+ *     <li>Удаленные строки и устаревшие имена периодически уплотняются</li>
+ *     <li>Строки упорядочены по возрастанию ID: новые ID дописываются в конец, а
+ *     {@link #upsertProducts(Collection)} с ID меньше уже выданных переставляет строки
+ *     по ID, поэтому порядок совпадает с порядком добавления, только пока ID идут по возрастанию</li>
+ *     <li>Не потокобезопасная реализация</li>
+ * </ul>
+ *
+ * @see ProductDao
+ * @see ProductDaoImpl
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class ColumnarProductDaoImpl implements ProductDao {
+    /** Маркер удаленной строки в колонке id (генерируемые ID начинаются с 1). */
+    private static final int DELETED = 0;
+    /** Код отсутствующего (null) тега. */
+    private static final int NULL_TAG = -1;
+    /** Минимальный объем «мусора» (строк или байт), после которого возможно уплотнение. */
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    private final boolean offHeapNames;
+
+    private int[] ids;
+    private int[] quantities;
+    private int[] tagCodes;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int rowCount;
+    private int liveCount;
+
+    private ByteBuffer names;
+    private int garbageNameBytes;
+
+    private final Map<String, Integer> tagDictionary = new HashMap<>();
+    private final List<String> tagValues = new ArrayList<>();
+
+    private final IntIndex index = new IntIndex();
+    private int nextId = 1;
+
+    /**
+     * Создает хранилище с именами в куче.
+     */
+    public ColumnarProductDaoImpl() {
+        this(false);
+    }
+
+    /**
+     * Создает хранилище с выбором размещения буфера имен.
+     * @param offHeapNames true - хранить имена в direct-буфере вне кучи
+     */
+    public ColumnarProductDaoImpl(boolean offHeapNames) {
+        this.offHeapNames = offHeapNames;
+        allocateColumns(1024);
+        names = allocateNames(16 * 1024);
+    }
+
+    /**
+     * Добавляет новый продукт с автоматически сгенерированным ID.
+     * @param product добавляемый продукт (существующий ID будет перезаписан)
+     * @return добавленный продукт с новым ID
+     */
+    @Override
+    public ProductRecord addProduct(ProductRecord product) {
+        ensureRowCapacity(rowCount + 1);
+        return appendRow(product);
+    }
+
+    /**
+     * Добавляет набор продуктов за один проход с однократным расширением колонок.
+     * @param products добавляемые продукты (существующие ID будут перезаписаны)
+     * @return добавленные продукты с новыми ID
+     */
+    @Override
+    public List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        ensureRowCapacity(rowCount + products.size());
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        for (ProductRecord product : products) {
+            added.add(appendRow(product));
+        }
+        return added;
+    }
+
+    /**
+     * Обновляет колонки существующего продукта по ID.
+     * Старые байты имени становятся мусором и освобождаются при уплотнении.
+     * @param product продукт с обновленными данными (должен содержать существующий ID)
+     */
+    @Override
+    public void updateProduct(ProductRecord product) {
+        if (overwriteRow(product)) {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Изменяет только колонку количества, не трогая имя и тег.
+     * @param id идентификатор продукта
+     * @param delta изменение количества
+     * @param nonNegative true, если количество не может стать отрицательным
+     * @return новое количество или пустой OptionalInt, если продукта нет
+     */
+    @Override
+    public OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        int row = index.get(id);
+        if (row == IntIndex.NO_VALUE) {
+            return OptionalInt.empty();
+        }
+        quantities[row] = QuantityAdjustment.apply(id, quantities[row], delta, nonNegative);
+        return OptionalInt.of(quantities[row]);
+    }
+
+    /**
+     * Обновляет набор продуктов; уплотнение выполняется не более одного раза.
+     * @param products продукты с обновленными данными
+     */
+    @Override
+    public void updateProducts(Collection<ProductRecord> products) {
+        for (ProductRecord product : products) {
+            overwriteRow(product);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Записывает продукты с их ID за один проход. Новые ID больше текущих дописываются
+     * в конец колонок; если среди новых есть меньшие ID, колонки один раз уплотняются
+     * и переставляются по возрастанию ID, чтобы сохранить двоичный поиск страниц.
+     * @param products продукты с положительными ID
+     */
+    @Override
+    public void upsertProducts(Collection<ProductRecord> products) {
+        ensureRowCapacity(rowCount + products.size());
+        boolean ordered = true;
+        for (ProductRecord product : products) {
+            if (overwriteRow(product)) {
+                continue;
+            }
+            ordered &= product.id() >= nextId;
+            insertRow(product);
+            nextId = Math.max(nextId, product.id() + 1);
+        }
+        if (ordered) {
+            compactIfNeeded();
+        } else {
+            compact();
+            sortRowsById();
+        }
+    }
+
+    /**
+     * Удаляет продукт по указанному ID.
+     * @param id идентификатор удаляемого продукта
+     */
+    @Override
+    public void deleteProduct(int id) {
+        if (removeRow(id)) {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Удаляет набор продуктов; уплотнение выполняется не более одного раза.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public void deleteProducts(Collection<Integer> ids) {
+        for (int id : ids) {
+            removeRow(id);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Материализует все строки в записи ProductRecord в порядке возрастания ID.
+     * @return новый список продуктов
+     */
+    @Override
+    public List<ProductRecord> getAllProducts() {
+        List<ProductRecord> result = new ArrayList<>(liveCount);
+        for (int row = 0; row < rowCount; row++) {
+            if (ids[row] != DELETED) {
+                result.add(readRow(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает ленивый поток продуктов: строки материализуются в ProductRecord
+     * только по мере обхода. Изменение DAO во время обхода не допускается.
+     * @return поток продуктов в порядке возрастания ID
+     */
+    @Override
+    public Stream<ProductRecord> streamProducts() {
+        return IntStream.range(0, rowCount)
+                .filter(row -> ids[row] != DELETED)
+                .mapToObj(this::readRow);
+    }
+
+    /**
+     * Находит продукты сканированием колонок количества и кодов тегов.
+     * Тег сравнивается по коду словаря (без декодирования строк),
+     * в ProductRecord материализуются только подходящие строки.
+     * @param query критерии поиска
+     * @return подходящие продукты в порядке возрастания ID
+     */
+    @Override
+    public List<ProductRecord> findProducts(ProductQuery query) {
+        int tagCode = NULL_TAG;
+        if (query.filtersByTag() && query.tag() != null) {
+            Integer code = tagDictionary.get(query.tag());
+            if (code == null) {
+                return new ArrayList<>();
+            }
+            tagCode = code;
+        }
+        boolean filtersByTag = query.filtersByTag();
+        int min = query.minQuantity();
+        int max = query.maxQuantity();
+        List<ProductRecord> result = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            if (ids[row] != DELETED
+                    && (!filtersByTag || tagCodes[row] == tagCode)
+                    && quantities[row] >= min && quantities[row] <= max) {
+                result.add(readRow(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Находит строку по первичному индексу и материализует ее в ProductRecord.
+     * @param id идентификатор продукта
+     * @return найденный продукт или пустой Optional
+     */
+    @Override
+    public Optional<ProductRecord> getProductById(int id) {
+        int row = index.get(id);
+        return row == IntIndex.NO_VALUE ? Optional.empty() : Optional.of(readRow(row));
+    }
+
+    /**
+     * @return количество живых строк без обхода колонок
+     */
+    @Override
+    public int countProducts() {
+        return liveCount;
+    }
+
+    /**
+     * Возвращает страницу продуктов с ID больше afterId.
+     * Живые строки упорядочены по ID, поэтому начало страницы находится
+     * двоичным поиском по колонке ID, и материализуются только строки страницы.
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество продуктов на странице
+     * @return страница продуктов в порядке возрастания ID
+     */
+    @Override
+    public List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        PageCollector.checkLimit(limit);
+        List<ProductRecord> page = new ArrayList<>(Math.min(limit, liveCount));
+        for (int row = firstRowAfter(afterId); row < rowCount && page.size() < limit; row++) {
+            if (ids[row] != DELETED) {
+                page.add(readRow(row));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Заглушка для совместимости с интерфейсом (не выполняет действий).
+     * @param source игнорируется в данной реализации
+     */
+    @Override
+    public void setDataSource(String source) {
+        // In-memory реализация не требует внешних источников данных
+    }
+
+    private ProductRecord appendRow(ProductRecord product) {
+        ProductRecord added = product.withId(nextId++);
+        insertRow(added);
+        return added;
+    }
+
+    private void insertRow(ProductRecord product) {
+        int row = rowCount++;
+        ids[row] = product.id();
+        writeRow(row, product);
+        index.put(product.id(), row);
+        liveCount++;
+    }
+
+    private boolean overwriteRow(ProductRecord product) {
+        int row = index.get(product.id());
+        if (row == IntIndex.NO_VALUE) {
+            return false;
+        }
+        garbageNameBytes += Math.max(nameLengths[row], 0);
+        writeRow(row, product);
+        return true;
+    }
+
+    private boolean removeRow(int id) {
+        int row = index.remove(id);
+        if (row == IntIndex.NO_VALUE) {
+            return false;
+        }
+        ids[row] = DELETED;
+        garbageNameBytes += Math.max(nameLengths[row], 0);
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * Двоичный поиск строки, с которой начинаются живые строки с ID больше afterId.
+     * Удаленные строки пропускаются: для них берется ближайшая живая строка справа.
+     * @param afterId граница поиска (не включается)
+     * @return номер строки, начиная с которой нужно просматривать колонки
+     */
+    private int firstRowAfter(int afterId) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int probe = mid;
+            while (probe < high && ids[probe] == DELETED) {
+                probe++;
+            }
+            if (probe == high || ids[probe] > afterId) {
+                high = mid;
+            } else {
+                low = probe + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Записывает значения продукта (кроме ID) в колонки указанной строки.
+     * @param row номер строки
+     * @param product источник значений
+     */
+    private void writeRow(int row, ProductRecord product) {
+        quantities[row] = product.quantity();
+        tagCodes[row] = encodeTag(product.tag());
+        String name = product.name();
+        if (name == null) {
+            nameOffsets[row] = names.position();
+            nameLengths[row] = -1;
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureNameCapacity(bytes.length);
+        nameOffsets[row] = names.position();
+        nameLengths[row] = bytes.length;
+        names.put(bytes);
+    }
+
+    /**
+     * Создает запись из колонок указанной строки.
+     * @param row номер строки
+     * @return новая запись
+     */
+    private ProductRecord readRow(int row) {
+        int tagCode = tagCodes[row];
+        return new ProductRecord(
+                ids[row],
+                decodeName(nameOffsets[row], nameLengths[row]),
+                quantities[row],
+                tagCode == NULL_TAG ? null : tagValues.get(tagCode)
+        );
+    }
+
+    private String decodeName(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        names.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int encodeTag(String tag) {
+        if (tag == null) {
+            return NULL_TAG;
+        }
+        Integer code = tagDictionary.get(tag);
+        if (code == null) {
+            code = tagValues.size();
+            tagDictionary.put(tag, code);
+            tagValues.add(tag);
+        }
+        return code;
+    }
+
+    /**
+     * Уплотняет хранилище, если удаленные строки или устаревшие имена
+     * занимают больше половины соответствующих колонок.
+     */
+    private void compactIfNeeded() {
+        int deletedRows = rowCount - liveCount;
+        boolean rowsWasted = deletedRows >= COMPACTION_THRESHOLD && deletedRows > liveCount;
+        boolean namesWasted = garbageNameBytes >= COMPACTION_THRESHOLD
+                && garbageNameBytes > names.position() / 2;
+        if (rowsWasted || namesWasted) {
+            compact();
+        }
+    }
+
+    /**
+     * Сдвигает живые строки к началу колонок, переписывает имена в новый буфер
+     * и перестраивает первичный индекс.
+     */
+    private void compact() {
+        ByteBuffer compactedNames = allocateNames(Math.max(names.position() - garbageNameBytes, 1024));
+        int target = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (ids[row] == DELETED) {
+                continue;
+            }
+            ids[target] = ids[row];
+            quantities[target] = quantities[row];
+            tagCodes[target] = tagCodes[row];
+            int offset = nameOffsets[row];
+            int length = nameLengths[row];
+            nameOffsets[target] = compactedNames.position();
+            nameLengths[target] = length;
+            if (length > 0) {
+                compactedNames.put(names.slice(offset, length));
+            }
+            index.put(ids[target], target);
+            target++;
+        }
+        rowCount = target;
+        names = compactedNames;
+        garbageNameBytes = 0;
+    }
+
+    /**
+     * Переставляет строки уплотненных колонок по возрастанию ID и перестраивает индекс.
+     * Байты имен не переносятся: переставляются только смещения и длины.
+     */
+    private void sortRowsById() {
+        long[] order = new long[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            order[row] = (long) ids[row] << 32 | row;
+        }
+        Arrays.sort(order);
+        int[] sortedIds = new int[ids.length];
+        int[] sortedQuantities = new int[ids.length];
+        int[] sortedTagCodes = new int[ids.length];
+        int[] sortedNameOffsets = new int[ids.length];
+        int[] sortedNameLengths = new int[ids.length];
+        for (int target = 0; target < rowCount; target++) {
+            int row = (int) order[target];
+            sortedIds[target] = ids[row];
+            sortedQuantities[target] = quantities[row];
+            sortedTagCodes[target] = tagCodes[row];
+            sortedNameOffsets[target] = nameOffsets[row];
+            sortedNameLengths[target] = nameLengths[row];
+            index.put(ids[row], target);
+        }
+        ids = sortedIds;
+        quantities = sortedQuantities;
+        tagCodes = sortedTagCodes;
+        nameOffsets = sortedNameOffsets;
+        nameLengths = sortedNameLengths;
+    }
+
+    private void ensureNameCapacity(int additionalBytes) {
+        if (names.remaining() >= additionalBytes) {
+            return;
+        }
+        long required = (long) names.position() + additionalBytes;
+        long capacity = Math.max(required, (long) names.capacity() * 2);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Превышен максимальный объем хранилища имен");
+            }
+            capacity = Integer.MAX_VALUE - 8;
+        }
+        ByteBuffer grown = allocateNames((int) capacity);
+        names.flip();
+        grown.put(names);
+        names = grown;
+    }
+
+    private ByteBuffer allocateNames(int capacity) {
+        return offHeapNames ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private void allocateColumns(int capacity) {
+        ids = new int[capacity];
+        quantities = new int[capacity];
+        tagCodes = new int[capacity];
+        nameOffsets = new int[capacity];
+        nameLengths = new int[capacity];
+    }
+
+    private void ensureRowCapacity(int capacity) {
+        if (capacity > ids.length) {
+            growColumns(Math.max(capacity, ids.length * 2));
+        }
+    }
+
+    private void growColumns(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        tagCodes = Arrays.copyOf(tagCodes, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * Потокобезопасная in-memory реализация интерфейса ProductDao.
+ * Предназначена для сценариев с несколькими пишущими потоками
+ * (фоновый импорт одновременно с редактированием из UI).
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Атомарная генерация ID через {@link AtomicInteger}</li>
+ *     <li>Неблокирующее хранилище {@link ConcurrentSkipListMap}, упорядоченное по ID</li>
+ *     <li>Порядок ID совпадает с порядком добавления</li>
+ *     <li>Изменение количества без блокировок: сравнение с заменой (CAS)
+ *     в {@link #adjustQuantity(int, int, boolean)}</li>
+ *     <li>Согласованный снимок в {@link #getAllProducts()}: изменения разделяют
+ *     read-блокировку, снимок берет write-блокировку и видит состояние
+ *     между завершенными операциями</li>
+ *     <li>Не сохраняет данные между сеансами работы приложения</li>
+ * </ul>
+ *
+ * @see ProductDao
+ * @see ProductDaoImpl
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+public class ConcurrentProductDaoImpl implements ProductDao {
+    private final ConcurrentSkipListMap<Integer, ProductRecord> products = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Lock mutationLock = snapshotLock.readLock();
+    private final Lock snapshotExclusiveLock = snapshotLock.writeLock();
+
+    /**
+     * Добавляет новый продукт с атомарно сгенерированным ID.
+     * @param product добавляемый продукт (существующий ID будет перезаписан)
+     * @return добавленный продукт с новым ID
+     */
+    @Override
+    public ProductRecord addProduct(ProductRecord product) {
+        mutationLock.lock();
+        try {
+            ProductRecord added = product.withId(nextId.getAndIncrement());
+            products.put(added.id(), added);
+            return added;
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Добавляет набор продуктов, резервируя непрерывный диапазон ID одной атомарной операцией.
+     * Снимок видит либо весь набор, либо ни одного продукта из него.
+     * @param products добавляемые продукты (существующие ID будут перезаписаны)
+     * @return добавленные продукты с новыми ID
+     */
+    @Override
+    public List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        mutationLock.lock();
+        try {
+            int id = nextId.getAndAdd(products.size());
+            List<ProductRecord> added = new ArrayList<>(products.size());
+            for (ProductRecord product : products) {
+                ProductRecord record = product.withId(id++);
+                this.products.put(record.id(), record);
+                added.add(record);
+            }
+            return added;
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Обновляет набор продуктов под одной блокировкой.
+     * @param products продукты с обновленными данными
+     */
+    @Override
+    public void updateProducts(Collection<ProductRecord> products) {
+        mutationLock.lock();
+        try {
+            for (ProductRecord product : products) {
+                this.products.replace(product.id(), product);
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает продукты с их ID под одной блокировкой. Счетчик ID сдвигается
+     * за наибольший записанный ID, чтобы новые продукты не получили занятый ID.
+     * @param products продукты с положительными ID
+     */
+    @Override
+    public void upsertProducts(Collection<ProductRecord> products) {
+        mutationLock.lock();
+        try {
+            int maxId = 0;
+            for (ProductRecord product : products) {
+                this.products.put(product.id(), product);
+                maxId = Math.max(maxId, product.id());
+            }
+            nextId.accumulateAndGet(maxId + 1, Math::max);
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет набор продуктов под одной блокировкой.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public void deleteProducts(Collection<Integer> ids) {
+        mutationLock.lock();
+        try {
+            for (Integer id : ids) {
+                products.remove(id);
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Обновляет существующий продукт по ID. Отсутствующий ID игнорируется.
+     * @param product продукт с обновленными данными (должен содержать существующий ID)
+     */
+    @Override
+    public void updateProduct(ProductRecord product) {
+        mutationLock.lock();
+        try {
+            products.replace(product.id(), product);
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Изменяет количество без блокировок между конкурирующими изменениями: запись
+     * заменяется копией с новым количеством через {@link ConcurrentSkipListMap#replace(Object, Object, Object)},
+     * и при одновременном изменении попытка повторяется с новым значением.
+     * @param id идентификатор продукта
+     * @param delta изменение количества
+     * @param nonNegative true, если количество не может стать отрицательным
+     * @return новое количество или пустой OptionalInt, если продукта нет
+     */
+    @Override
+    public OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        mutationLock.lock();
+        try {
+            while (true) {
+                ProductRecord current = products.get(id);
+                if (current == null) {
+                    return OptionalInt.empty();
+                }
+                int quantity = QuantityAdjustment.apply(id, current.quantity(), delta, nonNegative);
+                if (products.replace(id, current, current.withQuantity(quantity))) {
+                    return OptionalInt.of(quantity);
+                }
+            }
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет продукт по указанному ID.
+     * @param id идентификатор удаляемого продукта
+     */
+    @Override
+    public void deleteProduct(int id) {
+        mutationLock.lock();
+        try {
+            products.remove(id);
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает согласованный снимок всех продуктов в порядке добавления.
+     * На время копирования изменения приостанавливаются.
+     * @return новый ArrayList с текущими данными
+     */
+    @Override
+    public List<ProductRecord> getAllProducts() {
+        snapshotExclusiveLock.lock();
+        try {
+            return new ArrayList<>(products.values());
+        } finally {
+            snapshotExclusiveLock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает ленивый поток продуктов без блокировок и копирования.
+     * Поток слабо согласован: параллельные изменения могут быть видны частично.
+     * Для согласованного снимка используйте {@link #getAllProducts()}.
+     * @return поток продуктов в порядке возрастания ID
+     */
+    @Override
+    public Stream<ProductRecord> streamProducts() {
+        return products.values().stream();
+    }
+
+    /**
+     * Находит продукт по ID без блокировок.
+     * @param id идентификатор продукта
+     * @return найденный продукт или пустой Optional
+     */
+    @Override
+    public Optional<ProductRecord> getProductById(int id) {
+        return Optional.ofNullable(products.get(id));
+    }
+
+    /**
+     * Возвращает количество продуктов; при параллельных изменениях значение приблизительное.
+     * @return количество продуктов
+     */
+    @Override
+    public int countProducts() {
+        return products.size();
+    }
+
+    /**
+     * Возвращает страницу продуктов с ID больше afterId через {@link ConcurrentSkipListMap#tailMap}.
+     * Выполняется без блокировок: страница слабо согласована с параллельными изменениями.
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество продуктов на странице
+     * @return страница продуктов в порядке возрастания ID
+     */
+    @Override
+    public List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        PageCollector.checkLimit(limit);
+        List<ProductRecord> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<ProductRecord> iterator = products.tailMap(afterId, false).values().iterator();
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * Заглушка для совместимости с интерфейсом (не выполняет действий).
+     * @param source игнорируется в данной реализации
+     */
+    @Override
+    public void setDataSource(String source) {
+        // In-memory реализация не требует внешних источников данных
+    }
+}
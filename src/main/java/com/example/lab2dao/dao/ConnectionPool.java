@@ -0,0 +1,314 @@
+/**
+ * Ограниченный пул JDBC-соединений для DAO, работающих с базой данных.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Не более maxSize одновременно выданных соединений (ожидание с таймаутом)</li>
+ *     <li>Выдается обертка, метод close() которой возвращает соединение в пул</li>
+ *     <li>Соединения, простоявшие дольше интервала проверки, проверяются через isValid()</li>
+ *     <li>Соединения с ошибками класса 08 (обрыв связи) закрываются, а не возвращаются в пул;
+ *     ошибки отслеживаются и в выданных соединением Statement; ResultSet не оборачивается,
+ *     чтобы не замедлять чтение строк (pgjdbc закрывает соединение при ошибке ввода-вывода,
+ *     и такое соединение отбрасывается по isClosed())</li>
+ *     <li>Простаивающие дольше idleTimeout соединения закрываются фоновым потоком</li>
+ *     <li>При возврате незавершенная транзакция откатывается, autoCommit восстанавливается</li>
+ * </ul>
+ */
+package com.example.lab2dao.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+final class ConnectionPool implements AutoCloseable {
+    /** Соединения, простоявшие меньше этого интервала, выдаются без проверки. */
+    private static final long VALIDATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    /** Объекты JDBC, выполняющие запросы: их ошибки тоже могут означать обрыв связи. */
+    private static final Set<Class<?>> TRACKED_TYPES = Set.of(
+            Statement.class, PreparedStatement.class, CallableStatement.class);
+
+    private final String url;
+    private final Properties properties;
+    private final Duration acquireTimeout;
+    private final long idleTimeoutNanos;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * Создает пул. Соединения открываются лениво при первом запросе.
+     * @param url JDBC URL
+     * @param properties свойства подключения (user, password и т.д.)
+     * @param maxSize максимальное число одновременно выданных соединений
+     * @param idleTimeout время простоя, после которого соединение закрывается
+     * @param acquireTimeout максимальное время ожидания свободного соединения
+     */
+    ConnectionPool(String url, Properties properties, int maxSize, Duration idleTimeout, Duration acquireTimeout) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Размер пула должен быть положительным");
+        }
+        this.url = url;
+        this.properties = properties;
+        this.acquireTimeout = acquireTimeout;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeout.toMillis() / 2, 1000);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выдает соединение из пула или открывает новое.
+     * Соединение нужно закрыть (лучше через try-with-resources), чтобы вернуть его в пул.
+     * @return обертка над физическим соединением
+     * @throws SQLException если пул закрыт, истек таймаут ожидания или не удалось подключиться
+     */
+    Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Нет свободных соединений за " + acquireTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        }
+        try {
+            return wrap(takeValidOrOpen());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Открывает отдельное соединение с параметрами пула, не занимающее места в пуле.
+     * Используется для долгоживущих соединений (например, LISTEN); закрывает его вызывающий код.
+     * @return новое физическое соединение
+     * @throws SQLException если не удалось подключиться
+     */
+    Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(url, properties);
+    }
+
+    /**
+     * Закрывает все простаивающие соединения и останавливает фоновую очистку.
+     * Выданные соединения закрываются физически при возврате.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdown();
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.connection);
+        }
+    }
+
+    private Connection takeValidOrOpen() throws SQLException {
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            boolean fresh = System.nanoTime() - entry.idleSince < VALIDATION_INTERVAL_NANOS;
+            if (fresh || entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return entry.connection;
+            }
+            closeQuietly(entry.connection);
+        }
+        return DriverManager.getConnection(url, properties);
+    }
+
+    /**
+     * Возвращает физическое соединение в пул после закрытия обертки.
+     * @param connection физическое соединение
+     * @param broken true, если во время использования был обрыв связи
+     */
+    private void release(Connection connection, boolean broken) {
+        try {
+            if (closed || broken || connection.isClosed()) {
+                closeQuietly(connection);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.offerFirst(new IdleConnection(connection, System.nanoTime()));
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<IdleConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext()) {
+            IdleConnection entry = iterator.next();
+            if (now - entry.idleSince >= idleTimeoutNanos && idle.removeFirstOccurrence(entry)) {
+                closeQuietly(entry.connection);
+            }
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        PooledConnectionHandler handler = new PooledConnectionHandler(connection);
+        handler.proxy = (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                handler);
+        return handler.proxy;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Соединение уже непригодно, ошибку закрытия можно игнорировать
+        }
+    }
+
+    /**
+     * Соединение в пуле вместе с моментом начала простоя.
+     */
+    private record IdleConnection(Connection connection, long idleSince) {
+    }
+
+    /**
+     * Обработчик обертки: перехватывает close()/isClosed() и отслеживает обрывы связи,
+     * остальные вызовы передает физическому соединению.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private Connection proxy;
+        private boolean released;
+        private boolean broken;
+
+        PooledConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!released) {
+                        released = true;
+                        release(connection, broken);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return released || connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + connection;
+                }
+                default -> {
+                    if (released) {
+                        throw new SQLException("Соединение уже возвращено в пул");
+                    }
+                }
+            }
+            return track(invokeTracked(connection, method, args), method.getReturnType());
+        }
+
+        /**
+         * Вызывает метод объекта JDBC; ошибка класса 08 помечает соединение оборванным.
+         */
+        private Object invokeTracked(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException
+                        && sqlException.getSQLState() != null
+                        && sqlException.getSQLState().startsWith("08")) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * Оборачивает выданные соединением Statement, чтобы их ошибки тоже отслеживались;
+         * остальные результаты возвращаются как есть.
+         */
+        private Object track(Object result, Class<?> type) {
+            if (result == null || !TRACKED_TYPES.contains(type)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new TrackedObjectHandler(this, result));
+        }
+    }
+
+    /**
+     * Обработчик обертки Statement: передает вызовы физическому объекту
+     * через {@link PooledConnectionHandler#invokeTracked}; getConnection() возвращает
+     * обертку соединения, чтобы ее нельзя было обойти.
+     */
+    private record TrackedObjectHandler(PooledConnectionHandler owner, Object target) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection" -> {
+                    if (method.getParameterCount() == 0) {
+                        return owner.proxy;
+                    }
+                }
+                case "equals" -> {
+                    if (method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+                }
+                case "hashCode" -> {
+                    if (method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                }
+                case "toString" -> {
+                    if (method.getParameterCount() == 0) {
+                        return target.toString();
+                    }
+                }
+                default -> {
+                }
+            }
+            return owner.track(owner.invokeTracked(target, method, args), method.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,599 @@
+/**
+ * Реализация интерфейса ProductDao для работы с данными продуктов в CSV-файлах.
+ * Предназначена для больших выгрузок поставщиков, с которыми Excel работает медленно.
+ *
+ * <p>Формат файла:
+ * <ul>
+ *     <li>Кодировка UTF-8, разделитель - запятая, первая строка - заголовок id,name,quantity,tag</li>
+ *     <li>Поля с запятыми, кавычками или переводами строк заключаются в кавычки,
+ *     кавычки удваиваются</li>
+ *     <li>Пустое поле без кавычек означает null</li>
+ * </ul>
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>По умолчанию работает с файлом products.csv</li>
+ *     <li>Файл читается через отображение в память (memory-mapped NIO)</li>
+ *     <li>Файл делится на фрагменты по границам строк, которые разбираются
+ *     параллельно в ForkJoinPool; порядок строк сохраняется. Если граница попала
+ *     внутрь значения в кавычках, файл делится заново с учетом кавычек</li>
+ *     <li>Некорректная строка (нечисловой или отсутствующий ID, нечисловое количество)
+ *     прерывает чтение с номером строки в сообщении: файл не перезаписывается без нее</li>
+ *     <li>Разобранный снимок кэшируется до изменения времени модификации или размера файла</li>
+ *     <li>Запись выполняется во временный файл с атомарной заменой</li>
+ * </ul>
+ *
+ * @see ProductDao
+ * @see ExcelProductDaoImpl
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class CsvProductDaoImpl implements ProductDao {
+    private static final String HEADER = "id,name,quantity,tag";
+    /** Минимальный размер фрагмента для параллельного разбора. */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    /** Максимальный размер фрагмента (один MappedByteBuffer адресует не более 2 ГБ). */
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+    /** Размер окна отображения при поиске границ записей с учетом кавычек. */
+    private static final long RECORD_SCAN_WINDOW = 8 << 20;
+
+    private final ForkJoinPool pool;
+    private String filePath = "products.csv";
+
+    private List<ProductRecord> snapshot;
+    private FileTime snapshotModified;
+    private long snapshotSize = -1;
+    private int snapshotMaxId;
+
+    /**
+     * Создает DAO, разбирающий файл в общем ForkJoinPool.
+     */
+    public CsvProductDaoImpl() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Создает DAO, разбирающий файл в указанном пуле.
+     * @param pool пул для параллельного разбора фрагментов
+     */
+    public CsvProductDaoImpl(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Устанавливает путь к CSV-файлу и сбрасывает кэшированный снимок.
+     * @param source путь к файлу .csv
+     */
+    @Override
+    public synchronized void setDataSource(String source) {
+        this.filePath = source;
+        this.snapshot = null;
+    }
+
+    /**
+     * Добавляет новый продукт с автоматической генерацией ID (максимальный ID + 1).
+     * @param product добавляемый продукт (ID игнорируется и заменяется новым)
+     * @return добавленный продукт с новым ID
+     */
+    @Override
+    public synchronized ProductRecord addProduct(ProductRecord product) {
+        List<ProductRecord> products = loadSnapshot();
+        ProductRecord added = product.withId(++snapshotMaxId);
+        products.add(added);
+        saveAllProducts(products);
+        return added;
+    }
+
+    /**
+     * Обновляет данные существующего продукта в файле.
+     * @param product продукт с обновленными данными (ищется по ID)
+     */
+    @Override
+    public synchronized void updateProduct(ProductRecord product) {
+        List<ProductRecord> products = loadSnapshot();
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i).id() == product.id()) {
+                products.set(i, product);
+                break;
+            }
+        }
+        saveAllProducts(products);
+    }
+
+    /**
+     * Удаляет продукт по указанному ID из файла.
+     * @param id идентификатор удаляемого продукта
+     */
+    @Override
+    public synchronized void deleteProduct(int id) {
+        List<ProductRecord> products = loadSnapshot();
+        products.removeIf(p -> p.id() == id);
+        saveAllProducts(products);
+    }
+
+    /**
+     * Добавляет набор продуктов с одной перезаписью файла.
+     * @param products добавляемые продукты (ID игнорируются и заменяются новыми)
+     * @return добавленные продукты с новыми ID
+     */
+    @Override
+    public synchronized List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> current = loadSnapshot();
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        for (ProductRecord product : products) {
+            added.add(product.withId(++snapshotMaxId));
+        }
+        current.addAll(added);
+        saveAllProducts(current);
+        return added;
+    }
+
+    /**
+     * Обновляет набор продуктов за один проход по снимку с одной перезаписью файла.
+     * @param products продукты с обновленными данными (ищутся по ID)
+     */
+    @Override
+    public synchronized void updateProducts(Collection<ProductRecord> products) {
+        Map<Integer, ProductRecord> updates = new HashMap<>();
+        for (ProductRecord product : products) {
+            updates.put(product.id(), product);
+        }
+        List<ProductRecord> current = loadSnapshot();
+        current.replaceAll(p -> updates.getOrDefault(p.id(), p));
+        saveAllProducts(current);
+    }
+
+    /**
+     * Записывает продукты с их ID за один проход по снимку с одной перезаписью файла:
+     * существующие строки заменяются на месте, отсутствующие дописываются в конец.
+     * @param products продукты с положительными ID
+     */
+    @Override
+    public synchronized void upsertProducts(Collection<ProductRecord> products) {
+        Map<Integer, ProductRecord> upserts = new LinkedHashMap<>();
+        for (ProductRecord product : products) {
+            upserts.put(product.id(), product);
+        }
+        List<ProductRecord> current = loadSnapshot();
+        current.replaceAll(p -> {
+            ProductRecord updated = upserts.remove(p.id());
+            return updated != null ? updated : p;
+        });
+        for (ProductRecord added : upserts.values()) {
+            current.add(added);
+            snapshotMaxId = Math.max(snapshotMaxId, added.id());
+        }
+        saveAllProducts(current);
+    }
+
+    /**
+     * Удаляет набор продуктов за один проход по снимку с одной перезаписью файла.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public synchronized void deleteProducts(Collection<Integer> ids) {
+        Set<Integer> removed = new HashSet<>(ids);
+        List<ProductRecord> current = loadSnapshot();
+        current.removeIf(p -> removed.contains(p.id()));
+        saveAllProducts(current);
+    }
+
+    /**
+     * Получает список всех продуктов из CSV-файла.
+     * @return список продуктов. Если файл не существует, возвращает пустой список.
+     * @throws RuntimeException при ошибках чтения файла
+     */
+    @Override
+    public synchronized List<ProductRecord> getAllProducts() {
+        return new ArrayList<>(loadSnapshot());
+    }
+
+    /**
+     * Возвращает актуальный снимок содержимого файла, разбирая файл заново
+     * только при изменении его времени модификации или размера.
+     * @return изменяемый список продуктов снимка (не копия)
+     */
+    private List<ProductRecord> loadSnapshot() {
+        FileTime modified;
+        long size;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+            modified = attributes.lastModifiedTime();
+            size = attributes.size();
+        } catch (NoSuchFileException e) {
+            modified = null;
+            size = -1;
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения файла: " + filePath, e);
+        }
+        if (snapshot != null && size == snapshotSize && Objects.equals(modified, snapshotModified)) {
+            return snapshot;
+        }
+        snapshot = modified == null ? new ArrayList<>() : readProducts();
+        snapshotModified = modified;
+        snapshotSize = size;
+        snapshotMaxId = snapshot.stream().mapToInt(ProductRecord::id).max().orElse(0);
+        return snapshot;
+    }
+
+    /**
+     * Разбирает файл параллельно: файл делится на фрагменты, выровненные по
+     * переводам строк, каждый фрагмент отображается в память и разбирается
+     * отдельной задачей ForkJoin. Если граница фрагмента попала внутрь значения
+     * в кавычках с переводом строки, файл делится заново с учетом кавычек
+     * и разбирается повторно.
+     * @return список продуктов в порядке следования строк
+     * @throws RuntimeException при ошибках чтения файла или некорректной строке
+     *                          (с номером строки файла)
+     */
+    private List<ProductRecord> readProducts() {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                    Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * 4L)));
+            List<long[]> chunks = splitIntoLineChunks(channel, size, chunkSize);
+            ChunkResult result = pool.invoke(new ParseTask(channel, chunks, 0, chunks.size()));
+            if (!result.boundariesValid()) {
+                chunks = splitIntoRecordChunks(channel, size, chunkSize);
+                result = pool.invoke(new ParseTask(channel, chunks, 0, chunks.size()));
+            }
+            if (result.error() != null) {
+                throw new RuntimeException("Некорректная строка " + result.errorLine()
+                        + " в файле " + filePath, result.error());
+            }
+            return result.products();
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения файла: " + filePath, e);
+        }
+    }
+
+    /**
+     * Делит файл на фрагменты [начало, конец), каждый из которых заканчивается
+     * сразу после перевода строки (кроме последнего). Кавычки не учитываются,
+     * поэтому граница может попасть внутрь значения с переводом строки.
+     */
+    private static List<long[]> splitIntoLineChunks(FileChannel channel, long size, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size) {
+                end = nextLineStart(channel, end, size);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        long window = Math.min(64 * 1024, size - from);
+        while (from < size) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, window);
+            for (int i = 0; i < window; i++) {
+                if (buffer.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            from += window;
+            window = Math.min(window, size - from);
+        }
+        return size;
+    }
+
+    /**
+     * Делит файл на фрагменты по границам записей: последовательно просматривает
+     * файл, отслеживая кавычки, и завершает фрагмент только переводом строки вне кавычек.
+     */
+    private static List<long[]> splitIntoRecordChunks(FileChannel channel, long size, long chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        long position = 0;
+        boolean inQuotes = false;
+        while (position < size) {
+            long window = Math.min(RECORD_SCAN_WINDOW, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+            for (int i = 0; i < window; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && position + i + 1 - start >= chunkSize) {
+                    chunks.add(new long[]{start, position + i + 1});
+                    start = position + i + 1;
+                }
+            }
+            position += window;
+        }
+        if (start < size) {
+            chunks.add(new long[]{start, size});
+        }
+        return chunks;
+    }
+
+    /**
+     * Результат разбора одного или нескольких соседних фрагментов.
+     * @param products продукты в порядке следования строк
+     * @param lines количество переводов строк во фрагментах
+     * @param oddQuotes нечетное количество кавычек: конец фрагментов находится внутри значения
+     * @param boundariesValid все границы между фрагментами проходят вне кавычек
+     * @param errorLine номер первой некорректной строки, считая от начала фрагментов с 1
+     * @param error ошибка разбора этой строки или null
+     */
+    private record ChunkResult(List<ProductRecord> products, long lines, boolean oddQuotes,
+                               boolean boundariesValid, long errorLine, RuntimeException error) {
+        /**
+         * Объединяет результаты двух соседних диапазонов фрагментов.
+         * Граница между ними корректна, только если левый диапазон не закончился внутри кавычек.
+         */
+        ChunkResult followedBy(ChunkResult right) {
+            List<ProductRecord> merged = products;
+            merged.addAll(right.products);
+            boolean rightError = error == null && right.error != null;
+            return new ChunkResult(merged, lines + right.lines, oddQuotes != right.oddQuotes,
+                    boundariesValid && right.boundariesValid && !oddQuotes,
+                    rightError ? lines + right.errorLine : errorLine,
+                    rightError ? right.error : error);
+        }
+    }
+
+    /**
+     * Задача ForkJoin, рекурсивно делящая список фрагментов пополам
+     * и объединяющая результаты с сохранением порядка.
+     */
+    private static final class ParseTask extends RecursiveTask<ChunkResult> {
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        ParseTask(FileChannel channel, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (to - from <= 1) {
+                return from == to
+                        ? new ChunkResult(new ArrayList<>(), 0, false, true, 0, null)
+                        : parseChunk(chunks.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            ParseTask left = new ParseTask(channel, chunks, from, middle);
+            left.fork();
+            ChunkResult right = new ParseTask(channel, chunks, middle, to).compute();
+            return left.join().followedBy(right);
+        }
+
+        /**
+         * Разбирает фрагмент, считая, что он начинается с начала записи.
+         * Перевод строки внутри кавычек не завершает запись. Заголовок в начале
+         * файла пропускается; ошибка разбора запоминается, а не выбрасывается, так как
+         * при неверной границе фрагмента фрагмент будет разобран заново.
+         */
+        private ChunkResult parseChunk(long[] chunk) {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+            } catch (IOException e) {
+                throw new RuntimeException("Ошибка чтения CSV-фрагмента", e);
+            }
+            List<ProductRecord> products = new ArrayList<>();
+            CsvLineParser parser = new CsvLineParser();
+            int limit = buffer.limit();
+            int recordStart = 0;
+            long lines = 0;
+            long recordLine = 1;
+            boolean inQuotes = false;
+            boolean header = chunk[0] == 0;
+            long errorLine = 0;
+            RuntimeException error = null;
+            for (int i = 0; i <= limit; i++) {
+                byte b = i == limit ? (byte) '\n' : buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                    continue;
+                }
+                if (b != '\n') {
+                    continue;
+                }
+                if (i < limit) {
+                    lines++;
+                    if (inQuotes) {
+                        continue;
+                    }
+                }
+                int recordEnd = i > recordStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                if (recordEnd > recordStart) {
+                    if (header && isHeader(buffer, recordStart, recordEnd)) {
+                        header = false;
+                    } else if (error == null) {
+                        try {
+                            products.add(parser.parse(buffer, recordStart, recordEnd));
+                        } catch (RuntimeException e) {
+                            errorLine = recordLine;
+                            error = e;
+                        }
+                    }
+                }
+                header = false;
+                recordStart = i + 1;
+                recordLine = lines + 1;
+            }
+            return new ChunkResult(products, lines, inQuotes, true, errorLine, error);
+        }
+
+        private static boolean isHeader(MappedByteBuffer buffer, int start, int end) {
+            if (end - start != HEADER.length()) {
+                return false;
+            }
+            for (int i = 0; i < HEADER.length(); i++) {
+                if (buffer.get(start + i) != HEADER.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Разбор одной записи CSV из байтового буфера.
+     * Значения в кавычках могут содержать запятые, удвоенные кавычки и переводы строк.
+     */
+    private static final class CsvLineParser {
+        private final String[] fields = new String[4];
+        private byte[] scratch = new byte[256];
+
+        /**
+         * @throws IllegalArgumentException если ID или количество не число либо ID отсутствует
+         */
+        ProductRecord parse(MappedByteBuffer buffer, int start, int end) {
+            int field = 0;
+            int position = start;
+            while (field < fields.length) {
+                int length = 0;
+                boolean quoted = position < end && buffer.get(position) == '"';
+                if (quoted) {
+                    position++;
+                    while (position < end) {
+                        byte b = buffer.get(position++);
+                        if (b == '"') {
+                            if (position < end && buffer.get(position) == '"') {
+                                position++;
+                            } else {
+                                break;
+                            }
+                        }
+                        length = append(length, b);
+                    }
+                    while (position < end && buffer.get(position) != ',') {
+                        position++;
+                    }
+                } else {
+                    while (position < end && buffer.get(position) != ',') {
+                        length = append(length, buffer.get(position++));
+                    }
+                }
+                fields[field++] = !quoted && length == 0
+                        ? null
+                        : new String(scratch, 0, length, StandardCharsets.UTF_8);
+                if (position >= end) {
+                    break;
+                }
+                position++;
+            }
+            for (int i = field; i < fields.length; i++) {
+                fields[i] = null;
+            }
+            if (fields[0] == null) {
+                throw new IllegalArgumentException("Отсутствует ID");
+            }
+            return new ProductRecord(
+                    Integer.parseInt(fields[0].trim()),
+                    fields[1],
+                    fields[2] == null ? 0 : Integer.parseInt(fields[2].trim()),
+                    fields[3]
+            );
+        }
+
+        private int append(int length, byte b) {
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            scratch[length] = b;
+            return length + 1;
+        }
+    }
+
+    /**
+     * Записывает список продуктов во временный файл и атомарно заменяет им CSV-файл.
+     * @param products список продуктов для сохранения
+     */
+    private void saveAllProducts(List<ProductRecord> products) {
+        Path target = Path.of(filePath).toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.write('\n');
+                for (ProductRecord p : products) {
+                    writer.write(Integer.toString(p.id()));
+                    writer.write(',');
+                    writeField(writer, p.name());
+                    writer.write(',');
+                    writer.write(Integer.toString(p.quantity()));
+                    writer.write(',');
+                    writeField(writer, p.tag());
+                    writer.write('\n');
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            snapshot = null;
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Временный файл будет перезаписан при следующем сохранении
+                }
+            }
+            throw new RuntimeException("Ошибка записи в файл: " + filePath, e);
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+            snapshotModified = attributes.lastModifiedTime();
+            snapshotSize = attributes.size();
+        } catch (IOException e) {
+            snapshot = null;
+        }
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+}
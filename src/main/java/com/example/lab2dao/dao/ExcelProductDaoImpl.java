@@ -5,6 +5,12 @@
  * <p>Особенности реализации:
  * <ul>
  *     <li>По умолчанию работает с файлом products.xlsx</li>
+ *     <li>Читает лист потоково (событийная модель POI + SAX) без построения DOM всей книги</li>
+ *     <li>Ленивый {@link #streamProducts()}: строки отдаются по мере разбора листа</li>
+ *     <li>Записывает лист потоково через SXSSF с ограниченным окном строк в памяти</li>
+ *     <li>Кэширует разобранный снимок файла до изменения его времени модификации или размера</li>
+ *     <li>Опциональный режим отложенной записи (write-behind) с объединением изменений</li>
+ *     <li>Записывает файл через временный файл и атомарную замену</li>
  *     <li>Автоматически генерирует ID для новых записей</li>
  *     <li>Создает новый файл при первом сохранении, если он не существует</li>
  *     <li>Хранит данные в первом листе файла с заданной структурой колонок</li>
@@ -14,37 +20,166 @@
  */
 package com.example.lab2dao.dao;
 
-import com.example.lab2dao.model.Product;
+import com.example.lab2dao.model.ProductRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class ExcelProductDaoImpl implements ProductDao, AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(ExcelProductDaoImpl.class.getName());
+    /** Количество строк, удерживаемых в памяти при потоковой записи; остальные сбрасываются на диск. */
+    private static final int WRITE_ROW_WINDOW = 100;
+    /** Количество разобранных строк, которые могут ждать потребителя в {@link #streamProducts()}. */
+    private static final int STREAM_BUFFER_ROWS = 1024;
 
-public class ExcelProductDaoImpl implements ProductDao {
     private String filePath = "products.xlsx";
 
+    /** Разобранное содержимое файла; null, если снимок еще не загружен или сброшен. */
+    private List<ProductRecord> snapshot;
+    private FileTime snapshotModified;
+    private long snapshotSize = -1;
+    private int snapshotMaxId;
+
+    /** Порог несохраненных изменений для режима отложенной записи; 0 - режим выключен. */
+    private int dirtyThreshold;
+    private int dirtyCount;
+    private ScheduledExecutorService flushScheduler;
+    private ScheduledFuture<?> flushTask;
+
     /**
      * Устанавливает путь к Excel-файлу для работы с данными.
+     * Сохраняет отложенные изменения и сбрасывает кэшированный снимок предыдущего файла.
      * @param source путь к файлу .xlsx
      */
     @Override
-    public void setDataSource(String source) {
+    public synchronized void setDataSource(String source) {
+        flush();
         this.filePath = source;
+        this.snapshot = null;
+    }
+
+    /**
+     * Включает режим отложенной записи (write-behind).
+     * Изменения накапливаются в снимке и записываются одним переписыванием файла
+     * по таймеру или при достижении порога несохраненных изменений.
+     * Ошибка такой записи не отменяет и не прерывает изменение: она записывается в журнал,
+     * изменения остаются в снимке до следующей попытки, а {@link #flush()} и {@link #close()}
+     * сообщают о ней исключением, если повторная запись тоже не удалась.
+     * @param flushInterval период фоновой записи
+     * @param dirtyThreshold количество изменений, после которого запись выполняется немедленно
+     * @throws IllegalArgumentException если период не положителен или порог меньше 1
+     */
+    public synchronized void enableWriteBehind(Duration flushInterval, int dirtyThreshold) {
+        if (flushInterval.isNegative() || flushInterval.isZero() || dirtyThreshold < 1) {
+            throw new IllegalArgumentException("Некорректные параметры отложенной записи");
+        }
+        cancelFlushTask();
+        this.dirtyThreshold = dirtyThreshold;
+        if (flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "excel-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long intervalMillis = flushInterval.toMillis();
+        flushTask = flushScheduler.scheduleWithFixedDelay(
+                this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выключает режим отложенной записи, предварительно сохранив накопленные изменения.
+     */
+    public synchronized void disableWriteBehind() {
+        flush();
+        cancelFlushTask();
+        dirtyThreshold = 0;
+    }
+
+    /**
+     * Немедленно записывает накопленные изменения в файл.
+     * Без отложенных изменений не выполняет действий.
+     * @throws RuntimeException при ошибках записи файла
+     */
+    public synchronized void flush() {
+        if (dirtyCount > 0 && snapshot != null) {
+            saveAllProducts(snapshot);
+            dirtyCount = 0;
+        }
+    }
+
+    /**
+     * Сохраняет накопленные изменения и останавливает фоновую запись.
+     * Фоновая запись останавливается и при ошибке сохранения.
+     * @throws RuntimeException при ошибках записи файла
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            disableWriteBehind();
+        } finally {
+            cancelFlushTask();
+            dirtyThreshold = 0;
+            if (flushScheduler != null) {
+                flushScheduler.shutdown();
+                flushScheduler = null;
+            }
+        }
     }
 
     /**
      * Добавляет новый продукт в файл с автоматической генерацией ID.
      * ID генерируется как максимальный существующий ID + 1.
      * @param product добавляемый продукт (ID игнорируется и заменяется новым)
+     * @return добавленный продукт с новым ID
      */
     @Override
-    public void addProduct(Product product) {
-        List<Product> products = getAllProducts();
-        int newId = products.stream().mapToInt(Product::getId).max().orElse(0) + 1;
-        product.setId(newId);
-        products.add(product);
-        saveAllProducts(products);
+    public synchronized ProductRecord addProduct(ProductRecord product) {
+        List<ProductRecord> products = loadSnapshot();
+        ProductRecord added = product.withId(++snapshotMaxId);
+        products.add(added);
+        persist(products);
+        return added;
     }
 
     /**
@@ -52,15 +187,15 @@ public class ExcelProductDaoImpl implements ProductDao {
      * @param product продукт с обновленными данными (ищется по ID)
      */
     @Override
-    public void updateProduct(Product product) {
-        List<Product> products = getAllProducts();
+    public synchronized void updateProduct(ProductRecord product) {
+        List<ProductRecord> products = loadSnapshot();
         for (int i = 0; i < products.size(); i++) {
-            if (products.get(i).getId() == product.getId()) {
+            if (products.get(i).id() == product.id()) {
                 products.set(i, product);
                 break;
             }
         }
-        saveAllProducts(products);
+        persist(products);
     }
 
     /**
@@ -68,51 +203,293 @@ public class ExcelProductDaoImpl implements ProductDao {
      * @param id идентификатор удаляемого продукта
      */
     @Override
-    public void deleteProduct(int id) {
-        List<Product> products = getAllProducts();
-        products.removeIf(p -> p.getId() == id);
-        saveAllProducts(products);
+    public synchronized void deleteProduct(int id) {
+        List<ProductRecord> products = loadSnapshot();
+        products.removeIf(p -> p.id() == id);
+        persist(products);
+    }
+
+    /**
+     * Добавляет набор продуктов с одной перезаписью файла.
+     * @param products добавляемые продукты (ID игнорируются и заменяются новыми)
+     * @return добавленные продукты с новыми ID
+     */
+    @Override
+    public synchronized List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> current = loadSnapshot();
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        for (ProductRecord product : products) {
+            added.add(product.withId(++snapshotMaxId));
+        }
+        current.addAll(added);
+        persist(current);
+        return added;
+    }
+
+    /**
+     * Обновляет набор продуктов за один проход по снимку с одной перезаписью файла.
+     * @param products продукты с обновленными данными (ищутся по ID)
+     */
+    @Override
+    public synchronized void updateProducts(Collection<ProductRecord> products) {
+        Map<Integer, ProductRecord> updates = new HashMap<>();
+        for (ProductRecord product : products) {
+            updates.put(product.id(), product);
+        }
+        List<ProductRecord> current = loadSnapshot();
+        current.replaceAll(p -> updates.getOrDefault(p.id(), p));
+        persist(current);
+    }
+
+    /**
+     * Записывает продукты с их ID за один проход по снимку с одной перезаписью файла:
+     * существующие строки заменяются на месте, отсутствующие дописываются в конец.
+     * @param products продукты с положительными ID
+     */
+    @Override
+    public synchronized void upsertProducts(Collection<ProductRecord> products) {
+        Map<Integer, ProductRecord> upserts = new LinkedHashMap<>();
+        for (ProductRecord product : products) {
+            upserts.put(product.id(), product);
+        }
+        List<ProductRecord> current = loadSnapshot();
+        current.replaceAll(p -> {
+            ProductRecord updated = upserts.remove(p.id());
+            return updated != null ? updated : p;
+        });
+        for (ProductRecord added : upserts.values()) {
+            current.add(added);
+            snapshotMaxId = Math.max(snapshotMaxId, added.id());
+        }
+        persist(current);
+    }
+
+    /**
+     * Удаляет набор продуктов за один проход по снимку с одной перезаписью файла.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public synchronized void deleteProducts(Collection<Integer> ids) {
+        Set<Integer> removed = new HashSet<>(ids);
+        List<ProductRecord> current = loadSnapshot();
+        current.removeIf(p -> removed.contains(p.id()));
+        persist(current);
     }
 
     /**
      * Получает список всех продуктов из Excel-файла.
+     * Повторные вызовы обслуживаются из кэшированного снимка, пока файл не изменен извне.
      * @return список продуктов. Если файл не существует, возвращает пустой список.
      * @throws RuntimeException при ошибках чтения файла (кроме случая отсутствия файла)
      */
     @Override
-    public List<Product> getAllProducts() {
-        List<Product> products = new ArrayList<>();
+    public synchronized List<ProductRecord> getAllProducts() {
+        return new ArrayList<>(loadSnapshot());
+    }
 
-        try (InputStream is = new FileInputStream(filePath);
-             Workbook workbook = new XSSFWorkbook(is)) {
+    /**
+     * Возвращает ленивый поток продуктов.
+     * Если актуальный снимок уже в памяти, поток строится по его копии. Иначе лист
+     * разбирается в фоновом потоке, и первые строки доступны до окончания разбора;
+     * в памяти держится не более {@value #STREAM_BUFFER_ROWS} неполученных строк.
+     * Поток нужно закрыть (лучше через try-with-resources), чтобы остановить разбор.
+     * @return поток продуктов в порядке следования строк
+     * @throws RuntimeException при обходе, если файл не удалось прочитать
+     */
+    @Override
+    public synchronized Stream<ProductRecord> streamProducts() {
+        if (snapshot != null && (dirtyCount > 0 || isSnapshotOf(readFileAttributes()))) {
+            return new ArrayList<>(snapshot).stream();
+        }
+        String path = filePath;
+        return PushStream.of(consumer -> readProducts(path, consumer), STREAM_BUFFER_ROWS, "excel-stream-reader");
+    }
 
-            Sheet sheet = workbook.getSheetAt(0);
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) continue; // Пропускаем заголовок
+    /**
+     * Возвращает страницу продуктов с ID больше afterId.
+     * Если актуальный снимок уже в памяти, страница отбирается из него; иначе лист
+     * читается потоково и в памяти держатся только кандидаты в страницу,
+     * без построения полного снимка.
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество продуктов на странице
+     * @return страница продуктов в порядке возрастания ID
+     * @throws RuntimeException при ошибках чтения файла
+     */
+    @Override
+    public synchronized List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        PageCollector collector = new PageCollector(afterId, limit);
+        if (snapshot != null && (dirtyCount > 0 || isSnapshotOf(readFileAttributes()))) {
+            snapshot.forEach(collector);
+        } else {
+            readProducts(collector);
+        }
+        return collector.result();
+    }
 
-                int id = (int) row.getCell(0).getNumericCellValue();
-                String name = row.getCell(1).getStringCellValue();
-                int quantity = (int) row.getCell(2).getNumericCellValue();
-                String tag = row.getCell(3).getStringCellValue();
+    /**
+     * Возвращает актуальный снимок содержимого файла.
+     * Файл разбирается заново только если снимок отсутствует или у файла
+     * изменились время модификации или размер.
+     * @return изменяемый список продуктов снимка (не копия)
+     */
+    private List<ProductRecord> loadSnapshot() {
+        if (snapshot != null && dirtyCount > 0) {
+            // Несохраненные изменения новее содержимого файла
+            return snapshot;
+        }
+        BasicFileAttributes attributes = readFileAttributes();
+        if (isSnapshotOf(attributes)) {
+            return snapshot;
+        }
+        List<ProductRecord> products = new ArrayList<>();
+        if (attributes != null) {
+            readProducts(products::add);
+        }
+        snapshot = products;
+        snapshotModified = attributes == null ? null : attributes.lastModifiedTime();
+        snapshotSize = attributes == null ? -1 : attributes.size();
+        snapshotMaxId = products.stream().mapToInt(ProductRecord::id).max().orElse(0);
+        return snapshot;
+    }
 
-                products.add(new Product(id, name, quantity, tag));
-            }
-        } catch (FileNotFoundException e) {
-            return new ArrayList<>();
+    /**
+     * Читает время модификации и размер файла.
+     * @return атрибуты файла или null, если файл не существует
+     * @throws RuntimeException при ошибках чтения атрибутов
+     */
+    private BasicFileAttributes readFileAttributes() {
+        try {
+            return Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
         } catch (IOException e) {
             throw new RuntimeException("Ошибка чтения файла: " + filePath, e);
         }
-        return products;
+    }
+
+    /**
+     * Проверяет, что кэшированный снимок построен по файлу с указанными атрибутами.
+     * @param attributes текущие атрибуты файла (null, если файла нет)
+     * @return true, если снимок можно использовать без повторного разбора
+     */
+    private boolean isSnapshotOf(BasicFileAttributes attributes) {
+        if (snapshot == null) {
+            return false;
+        }
+        if (attributes == null) {
+            return snapshotSize == -1 && snapshotModified == null;
+        }
+        return attributes.size() == snapshotSize
+                && Objects.equals(attributes.lastModifiedTime(), snapshotModified);
+    }
+
+    /**
+     * Сохраняет измененный снимок: сразу или, в режиме отложенной записи,
+     * после накопления порогового числа изменений.
+     * @param products измененный снимок
+     * @throws RuntimeException при ошибках записи файла вне режима отложенной записи
+     */
+    private void persist(List<ProductRecord> products) {
+        if (dirtyThreshold == 0) {
+            saveAllProducts(products);
+            return;
+        }
+        if (++dirtyCount >= dirtyThreshold) {
+            // Изменение уже в снимке и будет записано следующей попыткой, поэтому не отменяется
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Отложенная запись по порогу или таймеру. Ошибка записывается в журнал и не
+     * останавливает расписание: изменения остаются в снимке до следующей попытки.
+     */
+    private synchronized void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Ошибка отложенной записи файла " + filePath, e);
+        }
+    }
+
+    private void cancelFlushTask() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+    }
+
+    /**
+     * Запоминает время модификации и размер только что записанного файла,
+     * чтобы собственная запись не приводила к повторному разбору.
+     */
+    private void rememberSavedFile() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+            snapshotModified = attributes.lastModifiedTime();
+            snapshotSize = attributes.size();
+        } catch (IOException e) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Потоково читает первый лист файла и передает продукты обработчику по мере разбора.
+     * Использует {@link XSSFReader} и SAX-обработчик листа, поэтому расход памяти
+     * не зависит от количества строк (в памяти держится только таблица общих строк).
+     * @param consumer обработчик, получающий продукты в порядке следования строк
+     * @throws RuntimeException при ошибках чтения или разбора файла
+     */
+    public void readProducts(Consumer<ProductRecord> consumer) {
+        readProducts(filePath, consumer);
+    }
+
+    private static void readProducts(String filePath, Consumer<ProductRecord> consumer) {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            return;
+        }
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, strings, new ProductRowHandler(consumer), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new RuntimeException("Ошибка чтения файла: " + filePath, e);
+        }
     }
 
     /**
      * Внутренний метод для сохранения списка продуктов в файл.
      * Создает новый файл с заголовками, если он не существует.
+     * Строки пишутся через {@link SXSSFWorkbook}: в памяти остается не более
+     * {@value #WRITE_ROW_WINDOW} строк, остальные выгружаются во временный файл.
+     *
+     * <p>Книга записывается во временный файл рядом с целевым, который затем
+     * атомарно заменяет products.xlsx. Сбой посреди записи не повреждает исходный файл.
      * @param products список продуктов для сохранения
      */
-    private void saveAllProducts(List<Product> products) {
-        try (Workbook workbook = new XSSFWorkbook();
-             OutputStream os = new FileOutputStream(filePath)) {
+    private void saveAllProducts(List<ProductRecord> products) {
+        Path target = Path.of(filePath).toAbsolutePath();
+        Path temp;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            discardUnsavedSnapshot();
+            throw new RuntimeException("Ошибка записи в файл: " + filePath, e);
+        }
+        SXSSFWorkbook workbook = new SXSSFWorkbook(WRITE_ROW_WINDOW);
+        try (workbook;
+             OutputStream os = new BufferedOutputStream(Files.newOutputStream(temp))) {
 
             Sheet sheet = workbook.createSheet("Products");
 
@@ -125,17 +502,119 @@ public class ExcelProductDaoImpl implements ProductDao {
 
             // Заполнение данных
             for (int i = 0; i < products.size(); i++) {
-                Product p = products.get(i);
+                ProductRecord p = products.get(i);
                 Row row = sheet.createRow(i + 1);
-                row.createCell(0).setCellValue(p.getId());
-                row.createCell(1).setCellValue(p.getName());
-                row.createCell(2).setCellValue(p.getQuantity());
-                row.createCell(3).setCellValue(p.getTag());
+                row.createCell(0).setCellValue(p.id());
+                row.createCell(1).setCellValue(p.name());
+                row.createCell(2).setCellValue(p.quantity());
+                row.createCell(3).setCellValue(p.tag());
             }
 
             workbook.write(os);
         } catch (IOException e) {
+            discardUnsavedSnapshot();
+            deleteQuietly(temp);
+            throw new RuntimeException("Ошибка записи в файл: " + filePath, e);
+        } finally {
+            workbook.dispose();
+        }
+        replaceAtomically(temp, target);
+        rememberSavedFile();
+    }
+
+    /**
+     * Заменяет целевой файл записанным временным файлом.
+     * Если файловая система не поддерживает атомарное перемещение,
+     * выполняется обычная замена.
+     * @param temp записанный временный файл
+     * @param target целевой файл
+     */
+    private void replaceAtomically(Path temp, Path target) {
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            discardUnsavedSnapshot();
+            deleteQuietly(temp);
             throw new RuntimeException("Ошибка записи в файл: " + filePath, e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Сбрасывает снимок после неудачной записи, чтобы следующее чтение вернуло
+     * фактическое содержимое файла. Отложенные изменения сохраняются в снимке
+     * для повторной попытки записи.
+     */
+    private void discardUnsavedSnapshot() {
+        if (dirtyCount == 0) {
+            snapshot = null;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Временный файл будет перезаписан при следующем сохранении
+        }
+    }
+
+    /**
+     * SAX-обработчик строк листа, собирающий ячейки строки в запись ProductRecord.
+     *
+     * <p>Ожидаемая структура колонок: ID, Name, Quantity, Tag.
+     * Строка заголовка (первая строка листа) пропускается,
+     * отсутствующие ячейки интерпретируются как null или 0.
+     */
+    private static final class ProductRowHandler implements SheetContentsHandler {
+        private final Consumer<ProductRecord> consumer;
+        private boolean header;
+        private int id;
+        private String name;
+        private int quantity;
+        private String tag;
+
+        ProductRowHandler(Consumer<ProductRecord> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            header = rowNum == 0;
+            id = 0;
+            name = null;
+            quantity = 0;
+            tag = null;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!header) {
+                consumer.accept(new ProductRecord(id, name, quantity, tag));
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (header || formattedValue == null) {
+                return;
+            }
+            switch (new CellReference(cellReference).getCol()) {
+                case 0 -> id = parseInt(formattedValue);
+                case 1 -> name = formattedValue;
+                case 2 -> quantity = parseInt(formattedValue);
+                case 3 -> tag = formattedValue;
+                default -> {
+                    // Дополнительные колонки игнорируются
+                }
+            }
+        }
+
+        private static int parseInt(String value) {
+            return (int) Double.parseDouble(value);
+        }
+    }
+}
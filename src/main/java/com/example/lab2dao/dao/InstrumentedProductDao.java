@@ -0,0 +1,200 @@
+/**
+ * Декоратор, измеряющий каждую операцию DAO: число вызовов, число ошибок
+ * и время выполнения (p50/p99/max). Метрики публикуются как JMX MBean
+ * {@code com.example.lab2dao:type=DaoMetrics,dao=<реализация>,operation=<операция>}.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Ошибкой считается любое исключение исходного DAO; исключение пробрасывается дальше</li>
+ *     <li>Для {@link #streamProducts()} измеряется открытие потока, а не его обход</li>
+ *     <li>Метрики общие для всех экземпляров с одинаковым именем DAO</li>
+ *     <li>Потокобезопасность определяется исходным DAO: декоратор не добавляет блокировок</li>
+ * </ul>
+ *
+ * @see ProductDao
+ * @see OperationMetricsMBean
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class InstrumentedProductDao implements ProductDao, AutoCloseable {
+    private final ProductDao delegate;
+    private final OperationMetrics addProduct;
+    private final OperationMetrics updateProduct;
+    private final OperationMetrics deleteProduct;
+    private final OperationMetrics addProducts;
+    private final OperationMetrics updateProducts;
+    private final OperationMetrics upsertProducts;
+    private final OperationMetrics deleteProducts;
+    private final OperationMetrics getAllProducts;
+    private final OperationMetrics streamProducts;
+    private final OperationMetrics getProductsAfter;
+    private final OperationMetrics getProductsPage;
+    private final OperationMetrics countProducts;
+    private final OperationMetrics estimateProductCount;
+    private final OperationMetrics findProducts;
+    private final OperationMetrics getProductById;
+    private final OperationMetrics adjustQuantity;
+    private final OperationMetrics setDataSource;
+
+    /**
+     * Создает декоратор, публикующий метрики под простым именем класса исходного DAO.
+     * @param delegate измеряемый DAO
+     */
+    public InstrumentedProductDao(ProductDao delegate) {
+        this(delegate, delegate.getClass().getSimpleName());
+    }
+
+    /**
+     * Создает декоратор с явным именем DAO в метриках.
+     * @param delegate измеряемый DAO
+     * @param daoName значение ключа dao в имени MBean
+     */
+    public InstrumentedProductDao(ProductDao delegate, String daoName) {
+        this.delegate = delegate;
+        this.addProduct = OperationMetrics.of(daoName, "addProduct");
+        this.updateProduct = OperationMetrics.of(daoName, "updateProduct");
+        this.deleteProduct = OperationMetrics.of(daoName, "deleteProduct");
+        this.addProducts = OperationMetrics.of(daoName, "addProducts");
+        this.updateProducts = OperationMetrics.of(daoName, "updateProducts");
+        this.upsertProducts = OperationMetrics.of(daoName, "upsertProducts");
+        this.deleteProducts = OperationMetrics.of(daoName, "deleteProducts");
+        this.getAllProducts = OperationMetrics.of(daoName, "getAllProducts");
+        this.streamProducts = OperationMetrics.of(daoName, "streamProducts");
+        this.getProductsAfter = OperationMetrics.of(daoName, "getProductsAfter");
+        this.getProductsPage = OperationMetrics.of(daoName, "getProductsPage");
+        this.countProducts = OperationMetrics.of(daoName, "countProducts");
+        this.estimateProductCount = OperationMetrics.of(daoName, "estimateProductCount");
+        this.findProducts = OperationMetrics.of(daoName, "findProducts");
+        this.getProductById = OperationMetrics.of(daoName, "getProductById");
+        this.adjustQuantity = OperationMetrics.of(daoName, "adjustQuantity");
+        this.setDataSource = OperationMetrics.of(daoName, "setDataSource");
+    }
+
+    @Override
+    public ProductRecord addProduct(ProductRecord product) {
+        return call(addProduct, () -> delegate.addProduct(product));
+    }
+
+    @Override
+    public void updateProduct(ProductRecord product) {
+        run(updateProduct, () -> delegate.updateProduct(product));
+    }
+
+    @Override
+    public void deleteProduct(int id) {
+        run(deleteProduct, () -> delegate.deleteProduct(id));
+    }
+
+    @Override
+    public List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        return call(addProducts, () -> delegate.addProducts(products));
+    }
+
+    @Override
+    public void updateProducts(Collection<ProductRecord> products) {
+        run(updateProducts, () -> delegate.updateProducts(products));
+    }
+
+    @Override
+    public void upsertProducts(Collection<ProductRecord> products) {
+        run(upsertProducts, () -> delegate.upsertProducts(products));
+    }
+
+    @Override
+    public void deleteProducts(Collection<Integer> ids) {
+        run(deleteProducts, () -> delegate.deleteProducts(ids));
+    }
+
+    @Override
+    public List<ProductRecord> getAllProducts() {
+        return call(getAllProducts, delegate::getAllProducts);
+    }
+
+    @Override
+    public Stream<ProductRecord> streamProducts() {
+        return call(streamProducts, delegate::streamProducts);
+    }
+
+    @Override
+    public List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        return call(getProductsAfter, () -> delegate.getProductsAfter(afterId, limit));
+    }
+
+    @Override
+    public List<ProductRecord> getProductsPage(ProductSort sort, int offset, int limit) {
+        return call(getProductsPage, () -> delegate.getProductsPage(sort, offset, limit));
+    }
+
+    @Override
+    public int countProducts() {
+        return call(countProducts, delegate::countProducts);
+    }
+
+    @Override
+    public int estimateProductCount() {
+        return call(estimateProductCount, delegate::estimateProductCount);
+    }
+
+    @Override
+    public List<ProductRecord> findProducts(ProductQuery query) {
+        return call(findProducts, () -> delegate.findProducts(query));
+    }
+
+    @Override
+    public Optional<ProductRecord> getProductById(int id) {
+        return call(getProductById, () -> delegate.getProductById(id));
+    }
+
+    @Override
+    public OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        return call(adjustQuantity, () -> delegate.adjustQuantity(id, delta, nonNegative));
+    }
+
+    @Override
+    public void setDataSource(String source) {
+        run(setDataSource, () -> delegate.setDataSource(source));
+    }
+
+    /**
+     * Закрывает исходный DAO, если он владеет ресурсами. Метрики остаются зарегистрированными.
+     * @throws Exception ошибка закрытия исходного DAO
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static <T> T call(OperationMetrics metrics, Supplier<T> operation) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = operation.get();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private static void run(OperationMetrics metrics, Runnable operation) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            operation.run();
+            failed = false;
+        } finally {
+            metrics.record(System.nanoTime() - start, failed);
+        }
+    }
+}
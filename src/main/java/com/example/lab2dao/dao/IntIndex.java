@@ -0,0 +1,220 @@
+/**
+ * Хеш-индекс с примитивными ключами и значениями int → int.
+ * Используется DAO-реализациями для отображения ID продукта на позицию записи
+ * без упаковки ключей в Integer.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Открытая адресация с линейным пробированием</li>
+ *     <li>Удаление без «надгробий» (сдвиг последующих элементов кластера)</li>
+ *     <li>Коэффициент заполнения не превышает 0.5</li>
+ *     <li>Не потокобезопасная реализация</li>
+ * </ul>
+ */
+package com.example.lab2dao.dao;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+final class IntIndex {
+    /** Значение, возвращаемое при отсутствии ключа. */
+    static final int NO_VALUE = -1;
+
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private int[] values;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private int size;
+    private int mask;
+
+    /**
+     * Создает пустой индекс с емкостью по умолчанию.
+     */
+    IntIndex() {
+        this(16);
+    }
+
+    /**
+     * Создает пустой индекс, рассчитанный на указанное количество элементов.
+     * @param expectedSize ожидаемое количество элементов
+     */
+    IntIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     * @param key ключ
+     * @return значение или {@link #NO_VALUE}, если ключ отсутствует
+     */
+    int get(int key) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : NO_VALUE;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Проверяет наличие ключа в индексе.
+     * @param key ключ
+     * @return true, если ключ присутствует
+     */
+    boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Добавляет или заменяет значение по ключу.
+     * @param key ключ
+     * @param value неотрицательное значение
+     */
+    void put(int key, int value) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Удаляет ключ из индекса.
+     * @param key ключ
+     * @return удаленное значение или {@link #NO_VALUE}, если ключ отсутствовал
+     */
+    int remove(int key) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                return NO_VALUE;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                int removed = values[slot];
+                shiftKeys(slot);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Возвращает количество ключей в индексе.
+     * @return размер индекса
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Передает все ключи индекса обработчику в порядке хранения (не упорядочены).
+     * Индекс нельзя изменять во время обхода.
+     * @param action обработчик ключей
+     */
+    void forEachKey(IntConsumer action) {
+        if (hasZeroKey) {
+            action.accept(FREE);
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Удаляет все ключи, сохраняя выделенную емкость.
+     */
+    void clear() {
+        Arrays.fill(keys, FREE);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * Сдвигает элементы кластера на место удаленного, чтобы не оставлять «дыр»
+     * в цепочках пробирования.
+     * @param slot освободившаяся ячейка
+     */
+    private void shiftKeys(int slot) {
+        int last;
+        while (true) {
+            last = slot;
+            slot = (slot + 1) & mask;
+            int key;
+            while (true) {
+                key = keys[slot];
+                if (key == FREE) {
+                    keys[last] = FREE;
+                    return;
+                }
+                int home = mix(key) & mask;
+                if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[last] = key;
+            values[last] = values[slot];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Гистограмма времени выполнения с логарифмически-линейными корзинами
+ * (по схеме HdrHistogram) для оценки перцентилей без хранения отдельных замеров.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Каждый диапазон [2^k, 2^(k+1)) делится на {@value #SUB_BUCKETS} равных корзин,
+ *     относительная погрешность перцентилей не превышает 1/{@value #SUB_BUCKETS}</li>
+ *     <li>Фиксированный объем памяти независимо от количества замеров</li>
+ *     <li>Запись без блокировок ({@link AtomicLongArray}), безопасна для нескольких потоков</li>
+ *     <li>Перцентили считаются по текущим значениям корзин и при параллельной записи приблизительны</li>
+ * </ul>
+ */
+package com.example.lab2dao.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Учитывает один замер.
+     * @param nanos длительность в наносекундах (отрицательные значения считаются нулем)
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(bucketOf(value));
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Оценивает перцентиль по корзинам.
+     * @param percentile доля от 0 до 1 (например, 0.99)
+     * @return верхняя граница корзины, содержащей перцентиль, нс (не больше максимума); 0 без замеров
+     */
+    long percentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return максимальный замер, нс
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Удаляет все замеры.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Номер корзины: значения меньше {@value #SUB_BUCKETS} попадают в собственные корзины,
+     * остальные — в одну из {@value #SUB_BUCKETS} корзин своего диапазона [2^k, 2^(k+1)).
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
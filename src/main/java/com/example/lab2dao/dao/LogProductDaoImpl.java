@@ -0,0 +1,694 @@
+/**
+ * Файловая реализация интерфейса ProductDao на основе журнала (append-only log).
+ * Каждое изменение дописывается в конец бинарного файла отдельной записью,
+ * поэтому стоимость одной операции не зависит от размера каталога.
+ *
+ * <p>Формат записи:
+ * <ol>
+ *     <li>длина тела записи - int</li>
+ *     <li>CRC32 тела - int</li>
+ *     <li>тело: тип (byte), id (int), quantity (int), name и tag
+ *     (длина в байтах UTF-8 или -1 для null, затем байты)</li>
+ * </ol>
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>По умолчанию работает с файлом products.log</li>
+ *     <li>При открытии журнал проигрывается в индекс в памяти, из которого обслуживаются чтения</li>
+ *     <li>Недописанная или поврежденная запись в конце файла отбрасывается;
+ *     неудачная запись откатывается обрезкой файла до ее начала</li>
+ *     <li>Фоновое уплотнение переписывает журнал только живыми записями,
+ *     когда мертвых записей становится больше, чем живых</li>
+ *     <li>Файл журнала заменяется уплотненной копией атомарно; уплотнения не пересекаются</li>
+ *     <li>Потокобезопасная реализация (синхронизация на экземпляре)</li>
+ * </ul>
+ *
+ * @see ProductDao
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+public class LogProductDaoImpl implements ProductDao, AutoCloseable {
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+
+    /** Размер заголовка записи: длина тела и CRC32. */
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final System.Logger LOGGER = System.getLogger(LogProductDaoImpl.class.getName());
+
+    /** Минимальное число мертвых записей, после которого запускается уплотнение. */
+    private static final int COMPACTION_THRESHOLD = 1024;
+    /** Наибольший допустимый размер записи вместе с заголовком. */
+    private static final int MAX_RECORD_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Map<Integer, ProductRecord> products = new LinkedHashMap<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Не дает двум уплотнениям работать одновременно; берется до монитора экземпляра. */
+    private final Object compactionLock = new Object();
+
+    private Path logPath;
+    private FileChannel channel;
+    private int nextId = 1;
+    private long deadRecords;
+    private boolean compactionScheduled;
+    /** Ошибка последнего фонового уплотнения; сообщается из {@link #close()}, сбрасывается удачным уплотнением. */
+    private RuntimeException compactionFailure;
+    /** Номер открытия журнала; уплотнение отменяется, если журнал был переоткрыт. */
+    private long generation;
+    /** Неудачную запись не удалось откатить: дописывать в журнал нельзя до переоткрытия. */
+    private boolean broken;
+
+    /**
+     * Открывает журнал по умолчанию (products.log).
+     * @throws RuntimeException при ошибках чтения журнала
+     */
+    public LogProductDaoImpl() {
+        open(Path.of("products.log"));
+    }
+
+    /**
+     * Переключает DAO на другой файл журнала, закрывая текущий.
+     * Файл создается, если не существует. Новый журнал открывается и при ошибке
+     * закрытия текущего.
+     * @param source путь к файлу журнала
+     * @throws RuntimeException при ошибках закрытия текущего или чтения нового журнала
+     */
+    @Override
+    public synchronized void setDataSource(String source) {
+        try {
+            closeChannel();
+        } finally {
+            open(Path.of(source));
+        }
+    }
+
+    /**
+     * Добавляет новый продукт одной записью ADD в конец журнала.
+     * @param product добавляемый продукт (существующий ID будет перезаписан)
+     * @return добавленный продукт с новым ID
+     */
+    @Override
+    public synchronized ProductRecord addProduct(ProductRecord product) {
+        ProductRecord added = product.withId(nextId++);
+        append(encode(ADD, added.id(), added));
+        products.put(added.id(), added);
+        return added;
+    }
+
+    /**
+     * Обновляет продукт записью UPDATE. Предыдущая запись продукта становится мертвой.
+     * Отсутствующий ID игнорируется.
+     * @param product продукт с обновленными данными (должен содержать существующий ID)
+     */
+    @Override
+    public synchronized void updateProduct(ProductRecord product) {
+        if (!products.containsKey(product.id())) {
+            return;
+        }
+        append(encode(UPDATE, product.id(), product));
+        products.put(product.id(), product);
+        recordDead(1);
+    }
+
+    /**
+     * Удаляет продукт записью DELETE. Запись продукта и сама запись удаления становятся мертвыми.
+     * @param id идентификатор удаляемого продукта
+     */
+    @Override
+    public synchronized void deleteProduct(int id) {
+        if (!products.containsKey(id)) {
+            return;
+        }
+        append(encode(DELETE, id, null));
+        products.remove(id);
+        recordDead(2);
+    }
+
+    /**
+     * Добавляет набор продуктов одной векторной записью (gathering write) в журнал.
+     * @param products добавляемые продукты (существующие ID будут перезаписаны)
+     * @return добавленные продукты с новыми ID
+     */
+    @Override
+    public synchronized List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        List<ByteBuffer> records = new ArrayList<>(products.size());
+        int id = nextId;
+        for (ProductRecord product : products) {
+            ProductRecord record = product.withId(id++);
+            added.add(record);
+            records.add(encode(ADD, record.id(), record));
+        }
+        appendAll(records);
+        nextId = id;
+        for (ProductRecord product : added) {
+            this.products.put(product.id(), product);
+        }
+        return added;
+    }
+
+    /**
+     * Обновляет набор продуктов одной векторной записью в журнал.
+     * Продукты с отсутствующими ID пропускаются.
+     * @param products продукты с обновленными данными
+     */
+    @Override
+    public synchronized void updateProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> existing = new ArrayList<>(products.size());
+        List<ByteBuffer> records = new ArrayList<>(products.size());
+        for (ProductRecord product : products) {
+            if (this.products.containsKey(product.id())) {
+                existing.add(product);
+                records.add(encode(UPDATE, product.id(), product));
+            }
+        }
+        appendAll(records);
+        for (ProductRecord product : existing) {
+            this.products.put(product.id(), product);
+        }
+        recordDead(existing.size());
+    }
+
+    /**
+     * Записывает продукты с их ID одной векторной записью в журнал: отсутствующие -
+     * записями ADD, существующие - записями UPDATE. Проигрывание журнала переносит
+     * счетчик ID за наибольший записанный ID.
+     * @param products продукты с положительными ID
+     */
+    @Override
+    public synchronized void upsertProducts(Collection<ProductRecord> products) {
+        List<ByteBuffer> records = new ArrayList<>(products.size());
+        int updated = 0;
+        for (ProductRecord product : products) {
+            boolean exists = this.products.containsKey(product.id());
+            records.add(encode(exists ? UPDATE : ADD, product.id(), product));
+            if (exists) {
+                updated++;
+            }
+        }
+        appendAll(records);
+        for (ProductRecord product : products) {
+            this.products.put(product.id(), product);
+            nextId = Math.max(nextId, product.id() + 1);
+        }
+        recordDead(updated);
+    }
+
+    /**
+     * Удаляет набор продуктов одной векторной записью в журнал.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public synchronized void deleteProducts(Collection<Integer> ids) {
+        Set<Integer> existing = new LinkedHashSet<>();
+        List<ByteBuffer> records = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            if (products.containsKey(id) && existing.add(id)) {
+                records.add(encode(DELETE, id, null));
+            }
+        }
+        appendAll(records);
+        for (Integer id : existing) {
+            products.remove(id);
+        }
+        recordDead(existing.size() * 2);
+    }
+
+    /**
+     * Возвращает все продукты из индекса в памяти без обращения к файлу.
+     * @return новый список продуктов в порядке добавления
+     */
+    @Override
+    public synchronized List<ProductRecord> getAllProducts() {
+        return new ArrayList<>(products.values());
+    }
+
+    /**
+     * @return количество продуктов в индексе в памяти
+     */
+    @Override
+    public synchronized int countProducts() {
+        return products.size();
+    }
+
+    /**
+     * Находит продукт по ID в индексе в памяти.
+     * @param id идентификатор продукта
+     * @return найденный продукт или пустой Optional
+     */
+    @Override
+    public synchronized Optional<ProductRecord> getProductById(int id) {
+        return Optional.ofNullable(products.get(id));
+    }
+
+    /**
+     * Синхронно уплотняет журнал, оставляя в нем только живые записи.
+     * Одновременные вызовы выполняются по очереди. Удачное уплотнение сбрасывает
+     * ошибку предыдущего фонового уплотнения, неудачное прикладывает ее как подавленную.
+     * @throws RuntimeException при ошибках записи файла
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            try {
+                compactExclusively();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    if (compactionFailure != null && compactionFailure != e) {
+                        e.addSuppressed(compactionFailure);
+                    }
+                }
+                throw e;
+            }
+        }
+        synchronized (this) {
+            compactionFailure = null;
+        }
+    }
+
+    private void compactExclusively() {
+        List<ByteBuffer> liveRecords;
+        long copiedUpTo;
+        long openedGeneration;
+        Path path;
+        synchronized (this) {
+            if (channel == null || broken) {
+                return;
+            }
+            liveRecords = new ArrayList<>(products.size());
+            for (ProductRecord product : products.values()) {
+                liveRecords.add(encode(ADD, product.id(), product));
+            }
+            int lastId = nextId - 1;
+            if (lastId > 0 && !products.containsKey(lastId)) {
+                // Сохраняет счетчик ID, чтобы ID удаленных продуктов не выдавались повторно
+                liveRecords.add(encode(DELETE, lastId, null));
+            }
+            path = logPath;
+            openedGeneration = generation;
+            copiedUpTo = position();
+        }
+
+        // Основной объем пишется без блокировки: операции продолжают дописывать старый журнал
+        Path temp;
+        try {
+            temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (ByteBuffer record : liveRecords) {
+                    writeFully(out, record);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка уплотнения журнала: " + path, e);
+        }
+
+        synchronized (this) {
+            try {
+                // copiedUpTo - позиция в том файле, который был открыт в первой фазе
+                if (channel == null || broken || generation != openedGeneration) {
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    long tail = channel.size() - copiedUpTo;
+                    long transferred = 0;
+                    while (transferred < tail) {
+                        transferred += channel.transferTo(copiedUpTo + transferred, tail - transferred, out);
+                    }
+                    out.force(true);
+                }
+                try {
+                    closeChannel();
+                } catch (RuntimeException e) {
+                    // Старый журнал не заменен: продолжаем работать с ним
+                    Files.deleteIfExists(temp);
+                    open(path);
+                    throw e;
+                }
+                try {
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                open(path);
+            } catch (IOException e) {
+                throw new RuntimeException("Ошибка уплотнения журнала: " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Закрывает файл журнала и останавливает фоновое уплотнение.
+     * Файл закрывается в любом случае.
+     * @throws RuntimeException при ошибке закрытия файла или если последнее
+     * фоновое уплотнение не удалось
+     */
+    @Override
+    public synchronized void close() {
+        compactor.shutdown();
+        RuntimeException failure = compactionFailure == null ? null
+                : new RuntimeException("Ошибка фонового уплотнения журнала: " + logPath, compactionFailure);
+        compactionFailure = null;
+        try {
+            closeChannel();
+        } catch (RuntimeException e) {
+            if (failure != null) {
+                e.addSuppressed(failure);
+            }
+            throw e;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Открывает журнал и восстанавливает индекс в памяти, проигрывая все записи.
+     * Хвост файла после последней корректной записи обрезается.
+     * @param path путь к файлу журнала
+     */
+    private void open(Path path) {
+        products.clear();
+        nextId = 1;
+        deadRecords = 0;
+        generation++;
+        broken = false;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logPath = path;
+            long validEnd = replay();
+            if (validEnd < channel.size()) {
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+        } catch (IOException e) {
+            RuntimeException error = new RuntimeException("Ошибка чтения журнала: " + path, e);
+            try {
+                closeChannel();
+            } catch (RuntimeException closeError) {
+                error.addSuppressed(closeError);
+            }
+            throw error;
+        }
+    }
+
+    /**
+     * Последовательно читает записи журнала и применяет их к индексу.
+     * Длина из заголовка, выходящая за конец файла, считается признаком недописанного хвоста.
+     * @return позиция конца последней корректной записи
+     * @throws IOException при ошибках чтения файла
+     */
+    private long replay() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long filePosition = 0;
+        long validEnd = 0;
+        long fileSize = channel.size();
+        CRC32 crc = new CRC32();
+        buffer.flip();
+        while (true) {
+            if (buffer.remaining() < HEADER_SIZE) {
+                buffer.compact();
+                int read = channel.read(buffer, filePosition);
+                buffer.flip();
+                if (read <= 0 && buffer.remaining() < HEADER_SIZE) {
+                    return validEnd;
+                }
+                filePosition += Math.max(read, 0);
+                continue;
+            }
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + Integer.BYTES);
+            if (length <= 0 || length > fileSize - validEnd - HEADER_SIZE) {
+                return validEnd;
+            }
+            if (buffer.remaining() < HEADER_SIZE + length) {
+                if (buffer.capacity() < HEADER_SIZE + length) {
+                    ByteBuffer larger = ByteBuffer.allocate(HEADER_SIZE + length);
+                    larger.put(buffer);
+                    larger.flip();
+                    buffer = larger;
+                }
+                buffer.compact();
+                int read = channel.read(buffer, filePosition);
+                buffer.flip();
+                if (read <= 0) {
+                    return validEnd;
+                }
+                filePosition += read;
+                continue;
+            }
+            buffer.position(buffer.position() + HEADER_SIZE);
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return validEnd;
+            }
+            apply(body);
+            buffer.position(buffer.position() + length);
+            validEnd += HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * Применяет тело записи журнала к индексу в памяти.
+     * @param body тело записи
+     */
+    private void apply(ByteBuffer body) {
+        byte type = body.get();
+        int id = body.getInt();
+        nextId = Math.max(nextId, id + 1);
+        if (type == DELETE) {
+            if (products.remove(id) != null) {
+                deadRecords++;
+            }
+            deadRecords++;
+            return;
+        }
+        int quantity = body.getInt();
+        String name = readString(body);
+        String tag = readString(body);
+        if (products.put(id, new ProductRecord(id, name, quantity, tag)) != null) {
+            deadRecords++;
+        }
+    }
+
+    /**
+     * Кодирует запись журнала вместе с заголовком.
+     * @param type тип записи
+     * @param id идентификатор продукта
+     * @param product данные продукта (null для записи DELETE)
+     * @return буфер, готовый к записи в канал
+     */
+    private static ByteBuffer encode(byte type, int id, ProductRecord product) {
+        byte[] name = product == null ? null : toBytes(product.name());
+        byte[] tag = product == null ? null : toBytes(product.tag());
+        long bodyLength = 1 + Integer.BYTES;
+        if (product != null) {
+            bodyLength += Integer.BYTES * 3 + (long) byteLength(name) + byteLength(tag);
+        }
+        if (HEADER_SIZE + bodyLength > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Слишком большая запись продукта: " + id);
+        }
+        int length = (int) bodyLength;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.putInt(id);
+        if (product != null) {
+            buffer.putInt(product.quantity());
+            writeString(buffer, name);
+            writeString(buffer, tag);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Дописывает запись в конец журнала.
+     * @param record закодированная запись
+     * @throws RuntimeException при ошибках записи файла
+     */
+    private void append(ByteBuffer record) {
+        long start = writePosition();
+        try {
+            writeFully(channel, record);
+        } catch (IOException e) {
+            throw rollBack(start, e);
+        }
+    }
+
+    /**
+     * Дописывает несколько записей в конец журнала векторной записью.
+     * @param records закодированные записи
+     * @throws RuntimeException при ошибках записи файла
+     */
+    private void appendAll(List<ByteBuffer> records) {
+        ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+        long start = writePosition();
+        try {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        } catch (IOException e) {
+            throw rollBack(start, e);
+        }
+    }
+
+    /**
+     * @return позиция, с которой начнется следующая запись
+     * @throws IllegalStateException если журнал закрыт или не удалось откатить прошлую запись
+     */
+    private long writePosition() {
+        if (channel == null) {
+            throw new IllegalStateException("Журнал не открыт");
+        }
+        if (broken) {
+            throw new IllegalStateException("Журнал поврежден незавершенной записью, требуется переоткрытие: " + logPath);
+        }
+        return position();
+    }
+
+    /**
+     * Отрезает недописанные байты неудачной записи, чтобы следующие записи не оказались
+     * за мусором, который проигрывание журнала сочтет концом файла.
+     * Если обрезать не удалось, дальнейшая запись запрещается до переоткрытия журнала.
+     * @param start позиция начала неудачной записи
+     * @param error ошибка записи
+     * @return исключение для выброса вызывающим методом
+     */
+    private RuntimeException rollBack(long start, IOException error) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            error.addSuppressed(e);
+            broken = true;
+        }
+        return new RuntimeException("Ошибка записи в журнал: " + logPath, error);
+    }
+
+    /**
+     * Учитывает мертвые записи и планирует фоновое уплотнение при их избытке.
+     * @param count количество новых мертвых записей
+     */
+    private void recordDead(int count) {
+        deadRecords += count;
+        if (!compactionScheduled && deadRecords >= COMPACTION_THRESHOLD && deadRecords > products.size()) {
+            compactionScheduled = true;
+            compactor.execute(this::compactInBackground);
+        }
+    }
+
+    /**
+     * Фоновое уплотнение. Ошибка записывается в журнал приложения и запоминается
+     * для {@link #close()}; следующее уплотнение будет запланировано при новых мертвых записях.
+     */
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Ошибка фонового уплотнения журнала " + logPath, e);
+            synchronized (this) {
+                compactionFailure = e;
+            }
+        } finally {
+            synchronized (this) {
+                compactionScheduled = false;
+            }
+        }
+    }
+
+    private long position() {
+        try {
+            return channel.position();
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения журнала: " + logPath, e);
+        }
+    }
+
+    /**
+     * Закрывает файл журнала; после вызова канал считается закрытым даже при ошибке.
+     * @throws RuntimeException при ошибке закрытия файла
+     */
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        FileChannel closing = channel;
+        channel = null;
+        try {
+            closing.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка закрытия журнала: " + logPath, e);
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int byteLength(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Метрики одной операции одной реализации DAO: число вызовов, число ошибок
+ * и гистограмма времени выполнения. Публикуется в платформенном MBeanServer.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Один экземпляр на пару (реализация DAO, операция) на все время работы приложения:
+ *     при смене источника данных счетчики продолжают накапливаться</li>
+ *     <li>MBean регистрируется при первом обращении к метрике</li>
+ *     <li>Запись замеров без блокировок</li>
+ * </ul>
+ *
+ * @see InstrumentedProductDao
+ */
+package com.example.lab2dao.dao;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+final class OperationMetrics implements OperationMetricsMBean {
+    private static final System.Logger LOGGER = System.getLogger(OperationMetrics.class.getName());
+    private static final String DOMAIN = "com.example.lab2dao";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final ConcurrentMap<String, OperationMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private OperationMetrics() {
+    }
+
+    /**
+     * Возвращает метрики операции, при первом обращении создавая и регистрируя MBean.
+     * Ошибка регистрации в JMX записывается в журнал и не мешает сбору метрик.
+     * @param dao имя реализации DAO
+     * @param operation имя операции
+     * @return общий для всех обращений экземпляр метрик
+     */
+    static OperationMetrics of(String dao, String operation) {
+        return REGISTRY.computeIfAbsent(dao + '/' + operation, key -> {
+            OperationMetrics metrics = new OperationMetrics();
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=DaoMetrics,dao="
+                        + dao + ",operation=" + operation);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            } catch (JMException e) {
+                LOGGER.log(System.Logger.Level.WARNING,
+                        "Метрики операции " + key + " не опубликованы в JMX", e);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Учитывает один вызов операции.
+     * @param nanos длительность вызова
+     * @param failed true, если вызов завершился исключением
+     */
+    void record(long nanos, boolean failed) {
+        count.increment();
+        if (failed) {
+            errors.increment();
+        }
+        totalNanos.add(nanos);
+        histogram.record(nanos);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / calls;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return histogram.percentile(0.5) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return histogram.percentile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return histogram.max() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        errors.reset();
+        totalNanos.reset();
+        histogram.reset();
+    }
+}
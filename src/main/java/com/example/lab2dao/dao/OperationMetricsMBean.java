@@ -0,0 +1,46 @@
+/**
+ * JMX-интерфейс метрик одной операции DAO.
+ * Регистрируется под именем
+ * {@code com.example.lab2dao:type=DaoMetrics,dao=<реализация>,operation=<операция>}
+ * и доступен в JConsole/VisualVM без подключения профилировщика.
+ *
+ * @see InstrumentedProductDao
+ */
+package com.example.lab2dao.dao;
+
+public interface OperationMetricsMBean {
+    /**
+     * @return количество вызовов операции (включая завершившиеся ошибкой)
+     */
+    long getCount();
+
+    /**
+     * @return количество вызовов, завершившихся исключением
+     */
+    long getErrorCount();
+
+    /**
+     * @return среднее время выполнения, мс
+     */
+    double getMeanMillis();
+
+    /**
+     * @return медиана времени выполнения (p50), мс
+     */
+    double getP50Millis();
+
+    /**
+     * @return 99-й перцентиль времени выполнения (p99), мс
+     */
+    double getP99Millis();
+
+    /**
+     * @return максимальное время выполнения, мс
+     */
+    double getMaxMillis();
+
+    /**
+     * Обнуляет счетчики и гистограмму.
+     */
+    void reset();
+}
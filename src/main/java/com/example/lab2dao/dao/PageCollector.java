@@ -0,0 +1,86 @@
+/**
+ * Отбирает страницу продуктов для keyset-пагинации из неупорядоченного потока:
+ * не более limit продуктов с наименьшими ID, большими afterId.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Хранит только кандидатов в страницу (куча размером не более limit)</li>
+ *     <li>Каждый продукт обрабатывается за O(log limit)</li>
+ *     <li>Подходит для потокового чтения файлов без построения полного списка</li>
+ * </ul>
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+final class PageCollector implements Consumer<ProductRecord> {
+    private static final Comparator<ProductRecord> BY_ID_DESCENDING =
+            Comparator.comparingInt(ProductRecord::id).reversed();
+
+    private final int afterId;
+    private final int limit;
+    private final PriorityQueue<ProductRecord> page;
+
+    /**
+     * @param afterId ID, после которого начинается страница (не включается)
+     * @param limit максимальный размер страницы
+     * @throws IllegalArgumentException если limit отрицательный
+     */
+    PageCollector(int afterId, int limit) {
+        checkLimit(limit);
+        this.afterId = afterId;
+        this.limit = limit;
+        this.page = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), BY_ID_DESCENDING);
+    }
+
+    @Override
+    public void accept(ProductRecord product) {
+        int id = product.id();
+        if (id <= afterId || limit == 0) {
+            return;
+        }
+        if (page.size() < limit) {
+            page.add(product);
+        } else if (id < page.peek().id()) {
+            page.poll();
+            page.add(product);
+        }
+    }
+
+    /**
+     * Проверяет размер страницы, запрошенный через {@link ProductDao#getProductsAfter(int, int)}.
+     * @param limit максимальный размер страницы
+     * @throws IllegalArgumentException если limit отрицательный
+     */
+    static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы не может быть отрицательным: " + limit);
+        }
+    }
+
+    /**
+     * Проверяет позицию страницы, запрошенной через {@link ProductDao#getProductsPage(ProductSort, int, int)}.
+     * @param offset количество пропускаемых строк
+     * @throws IllegalArgumentException если offset отрицательный
+     */
+    static void checkOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Позиция страницы не может быть отрицательной: " + offset);
+        }
+    }
+
+    /**
+     * @return отобранная страница, упорядоченная по возрастанию ID
+     */
+    List<ProductRecord> result() {
+        List<ProductRecord> result = new ArrayList<>(page);
+        result.sort(Comparator.comparingInt(ProductRecord::id));
+        return result;
+    }
+}
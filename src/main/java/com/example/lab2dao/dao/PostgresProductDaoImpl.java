@@ -5,26 +5,92 @@
  * <p>Особенности реализации:
  * <ul>
  *     <li>Автоматическое создание таблицы при инициализации</li>
- *     <li>Использование пула соединений (одно соединение на экземпляр)</li>
+ *     <li>Ограниченный пул соединений с проверкой и закрытием простаивающих соединений</li>
+ *     <li>Безопасна для одновременного использования из нескольких потоков</li>
  *     <li>Поддержка транзакций на уровне отдельных операций</li>
- *     <li>Жестко заданные параметры подключения в конструкторе</li>
+ *     <li>Параметры подключения задаются через конструктор или {@link #setDataSource(String)}</li>
+ *     <li>Массовые импорт и экспорт через протокол COPY в формате CSV</li>
+ *     <li>Пакетная запись с сохранением ID (INSERT ... ON CONFLICT) для переноса данных
+ *     из других хранилищ</li>
+ *     <li>Keyset-пагинация по первичному ключу и чтение полной таблицы через серверный курсор</li>
+ *     <li>Ленивый {@link #streamProducts()}, владеющий соединением и курсором до закрытия</li>
+ *     <li>Поиск по тегу и диапазону количества выполняется на стороне БД по индексам</li>
+ *     <li>Постраничное чтение в порядке любой колонки с сортировкой на стороне БД
+ *     и быстрая оценка количества строк для таблиц UI</li>
+ *     <li>Атомарное изменение количества одним UPDATE на сервере</li>
+ *     <li>Уведомления об изменениях таблицы от всех клиентов БД через LISTEN/NOTIFY
+ *     ({@link #addChangeListener(ProductChangeListener)})</li>
  * </ul>
  *
  * @see ProductDao
  */
 package com.example.lab2dao.dao;
 
-import com.example.lab2dao.model.Product;
+import com.example.lab2dao.model.ProductRecord;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.*;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class PostgresProductDaoImpl implements ProductDao, AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(PostgresProductDaoImpl.class.getName());
+    private static final String DEFAULT_URL = "jdbc:postgresql://localhost:7777/dao";
+    private static final String DEFAULT_USER = "postgres";
+    private static final String DEFAULT_PASSWORD = "postgres";
+    private static final int DEFAULT_MAX_POOL_SIZE = 10;
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration ACQUIRE_TIMEOUT = Duration.ofSeconds(30);
+    /** Количество строк в одном многострочном INSERT (3 параметра на строку при лимите 32767). */
+    private static final int INSERT_BATCH_ROWS = 1000;
+    /** Количество UPDATE в одном JDBC-пакете. */
+    private static final int UPDATE_BATCH_SIZE = 1000;
+    /** Количество строк, получаемых с сервера за одно обращение к курсору. */
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    /** Канал уведомлений об изменениях products; полезная нагрузка "операция:id,id,..." или "операция:*". */
+    private static final String CHANGE_CHANNEL = "products_changed";
+    /**
+     * Наибольшее количество ID в одном уведомлении (500 ID по 11 символов укладываются
+     * в предел полезной нагрузки NOTIFY 8000 байт). Запрос, изменивший больше строк,
+     * отправляет одно уведомление "операция:*".
+     */
+    private static final int NOTIFY_MAX_IDS = 500;
+    /** Максимальное время ожидания уведомлений за одно обращение (проверка закрытия DAO). */
+    private static final int NOTIFICATION_POLL_MILLIS = 500;
+    /** Пауза перед повторной попыткой, если подключение для LISTEN не удалось. */
+    private static final Duration LISTEN_RETRY_DELAY = Duration.ofSeconds(5);
 
-public class PostgresProductDaoImpl implements ProductDao {
-    private Connection connection;
+    private final String user;
+    private final String password;
+    private final int maxPoolSize;
+    private volatile ConnectionPool pool;
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private final List<ProductChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private Thread changeListenerThread;
+    private volatile Connection listenConnection;
+    private volatile boolean closed;
 
     /**
-     * Создает соединение с PostgreSQL и инициализирует схему БД.
+     * Создает пул соединений с PostgreSQL и инициализирует схему БД.
      * @throws RuntimeException если не удалось установить соединение
      *
      * <p>Параметры подключения по умолчанию:
@@ -32,23 +98,58 @@ public class PostgresProductDaoImpl implements ProductDao {
      *     <li>URL: jdbc:postgresql://localhost:7777/dao</li>
      *     <li>Пользователь: postgres</li>
      *     <li>Пароль: postgres</li>
+     *     <li>Размер пула: 10 соединений</li>
      * </ul>
      */
     public PostgresProductDaoImpl() {
-        try {
-            String url = "jdbc:postgresql://localhost:7777/dao";
-            String user = "postgres";
-            String password = "postgres";
-            connection = DriverManager.getConnection(url, user, password);
-            createTableIfNotExists();
+        this(DEFAULT_URL, DEFAULT_USER, DEFAULT_PASSWORD, DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * Создает пул соединений с указанными параметрами и инициализирует схему БД.
+     * @param url JDBC URL базы данных
+     * @param user пользователь по умолчанию (переопределяется параметром user в URL)
+     * @param password пароль по умолчанию (переопределяется параметром password в URL)
+     * @param maxPoolSize максимальное число одновременно открытых соединений
+     * @throws RuntimeException если не удалось установить соединение
+     */
+    public PostgresProductDaoImpl(String url, String user, String password, int maxPoolSize) {
+        this.user = user;
+        this.password = password;
+        this.maxPoolSize = maxPoolSize;
+        connect(url);
+    }
+
+    /**
+     * Открывает новый пул для указанного URL и проверяет подключение созданием схемы.
+     * Предыдущий пул закрывается только после успешного подключения.
+     * @param url JDBC URL базы данных
+     * @throws RuntimeException если не удалось установить соединение
+     */
+    private void connect(String url) {
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        ConnectionPool newPool = new ConnectionPool(url, properties, maxPoolSize, IDLE_TIMEOUT, ACQUIRE_TIMEOUT);
+        try (Connection connection = newPool.getConnection()) {
+            createTableIfNotExists(connection);
         } catch (SQLException e) {
+            newPool.close();
             showConnectionErrorAlert(e);
             throw new RuntimeException("Failed to connect to PostgreSQL", e);
         }
+        ConnectionPool oldPool = pool;
+        pool = newPool;
+        if (oldPool != null) {
+            oldPool.close();
+        }
+        // Поток уведомлений переподключается к новой базе и сообщает о потере изменений
+        closeQuietly(listenConnection);
     }
 
     /**
      * Создает таблицу products, если она не существует.
+     * @param connection соединение для выполнения DDL-запроса
      * @throws SQLException при ошибках выполнения DDL-запроса
      *
      * <p>Структура таблицы:
@@ -58,8 +159,24 @@ public class PostgresProductDaoImpl implements ProductDao {
      *     <li>quantity - INTEGER NOT NULL</li>
      *     <li>tag - VARCHAR(255)</li>
      * </ul>
+     *
+     * <p>Индексы для {@link #findProducts(ProductQuery)}:
+     * <ul>
+     *     <li>(tag, quantity) - тег и тег с диапазоном количества</li>
+     *     <li>(quantity) - только диапазон количества</li>
+     * </ul>
+     * Индексы для {@link #getProductsPage(ProductSort, int, int)} с сортировкой
+     * по наименованию и тегу: (name COLLATE "C", id) и (tag COLLATE "C", id).
+     *
+     * <p>Триггеры products_notify_insert, products_notify_update и products_notify_delete
+     * срабатывают один раз на запрос (FOR EACH STATEMENT) и по таблице переходов
+     * отправляют в канал products_changed одно уведомление со списком ID вида
+     * {@code "UPDATE:42,43"}, а если строк больше {@value #NOTIFY_MAX_IDS} -
+     * {@code "UPDATE:*"}. Поэтому COPY, пакетные операции и перенос данных не порождают
+     * уведомление на каждую строку. Построчный триггер прежних версий удаляется.
+     * Уведомления доставляются слушателям только после фиксации транзакции.
      */
-    private void createTableIfNotExists() throws SQLException {
+    private void createTableIfNotExists(Connection connection) throws SQLException {
         String sql = "CREATE TABLE IF NOT EXISTS products (" +
                 "id SERIAL PRIMARY KEY," +
                 "name VARCHAR(255) NOT NULL," +
@@ -68,29 +185,75 @@ public class PostgresProductDaoImpl implements ProductDao {
                 ")";
         try (Statement stmt = connection.createStatement()) {
             stmt.execute(sql);
+            stmt.execute("CREATE INDEX IF NOT EXISTS products_tag_quantity_idx ON products (tag, quantity)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS products_quantity_idx ON products (quantity)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS products_name_id_idx ON products (name COLLATE \"C\", id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS products_tag_id_idx ON products (tag COLLATE \"C\", id)");
+            stmt.execute("DROP TRIGGER IF EXISTS products_notify_change ON products");
+            stmt.execute("CREATE OR REPLACE FUNCTION products_notify_change() RETURNS trigger AS $$ " +
+                    "DECLARE ids text; " +
+                    "BEGIN " +
+                    "SELECT string_agg(id::text, ',') INTO ids " +
+                    "FROM (SELECT id FROM changed_rows LIMIT " + (NOTIFY_MAX_IDS + 1) + ") AS limited " +
+                    "HAVING count(*) <= " + NOTIFY_MAX_IDS + "; " +
+                    "IF ids IS NULL AND EXISTS (SELECT 1 FROM changed_rows) THEN " +
+                    "ids := '*'; " +
+                    "END IF; " +
+                    "IF ids IS NOT NULL THEN " +
+                    "PERFORM pg_notify('" + CHANGE_CHANNEL + "', TG_OP || ':' || ids); " +
+                    "END IF; " +
+                    "RETURN NULL; " +
+                    "END $$ LANGUAGE plpgsql");
+            createNotifyTrigger(stmt, "products_notify_insert", "INSERT", "NEW");
+            createNotifyTrigger(stmt, "products_notify_update", "UPDATE", "NEW");
+            createNotifyTrigger(stmt, "products_notify_delete", "DELETE", "OLD");
         }
     }
 
+    /**
+     * Создает триггер уведомлений уровня запроса, если его еще нет.
+     * Таблица переходов может быть только у триггера на одну операцию, поэтому
+     * на каждую операцию создается свой триггер с общей функцией.
+     * @param stmt выражение для выполнения DDL
+     * @param name имя триггера
+     * @param operation INSERT, UPDATE или DELETE
+     * @param transitionTable NEW или OLD - какие версии строк попадают в changed_rows
+     * @throws SQLException при ошибках выполнения DDL
+     */
+    private static void createNotifyTrigger(Statement stmt, String name, String operation,
+                                            String transitionTable) throws SQLException {
+        stmt.execute("DO $$ BEGIN " +
+                "IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = '" + name + "' " +
+                "AND tgrelid = 'products'::regclass) THEN " +
+                "CREATE TRIGGER " + name + " AFTER " + operation + " ON products " +
+                "REFERENCING " + transitionTable + " TABLE AS changed_rows " +
+                "FOR EACH STATEMENT EXECUTE FUNCTION products_notify_change(); " +
+                "END IF; " +
+                "END $$");
+    }
+
     /**
      * Добавляет новый товар в базу данных.
      * @param product добавляемый товар (ID генерируется базой данных)
+     * @return добавленный товар с ID, присвоенным базой данных
      *
      * <p>Логика работы:
      * <ol>
      *     <li>Выполняет INSERT без указания ID</li>
      *     <li>Получает сгенерированный ID через RETURN_GENERATED_KEYS</li>
-     *     <li>Обновляет ID в переданном объекте Product</li>
+     *     <li>Возвращает копию записи с этим ID</li>
      * </ol>
      */
     @Override
-    public void addProduct(Product product) {
+    public ProductRecord addProduct(ProductRecord product) {
         String sql = "INSERT INTO products (name, quantity, tag) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             setProductParameters(pstmt, product);
             pstmt.executeUpdate();
-            updateProductIdFromGeneratedKeys(pstmt, product);
+            return withGeneratedId(pstmt, product);
         } catch (SQLException e) {
-            handleSQLException(e);
+            throw handleSQLException(e);
         }
     }
 
@@ -106,14 +269,15 @@ public class PostgresProductDaoImpl implements ProductDao {
      * </ul>
      */
     @Override
-    public void updateProduct(Product product) {
+    public void updateProduct(ProductRecord product) {
         String sql = "UPDATE products SET name = ?, quantity = ?, tag = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             setProductParameters(pstmt, product);
-            pstmt.setInt(4, product.getId());
+            pstmt.setInt(4, product.id());
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            handleSQLException(e);
+            throw handleSQLException(e);
         }
     }
 
@@ -131,59 +295,702 @@ public class PostgresProductDaoImpl implements ProductDao {
     @Override
     public void deleteProduct(int id) {
         String sql = "DELETE FROM products WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            handleSQLException(e);
+            throw handleSQLException(e);
+        }
+    }
+
+    /**
+     * Добавляет набор товаров многострочными INSERT в одной транзакции.
+     * @param products добавляемые товары (ID генерируются базой данных)
+     *
+     * <p>Логика работы:
+     * <ol>
+     *     <li>Делит набор на группы по {@value #INSERT_BATCH_ROWS} строк</li>
+     *     <li>Для каждой группы выполняет INSERT ... VALUES (...), (...) RETURNING id</li>
+     *     <li>Сопоставляет сгенерированные ID записям в порядке строк VALUES</li>
+     *     <li>При ошибке откатывает всю транзакцию</li>
+     * </ol>
+     * @return добавленные товары с ID, присвоенными базой данных
+     */
+    @Override
+    public List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        if (products.isEmpty()) {
+            return added;
+        }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            Iterator<ProductRecord> iterator = products.iterator();
+            List<ProductRecord> chunk = new ArrayList<>(Math.min(products.size(), INSERT_BATCH_ROWS));
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == INSERT_BATCH_ROWS || !iterator.hasNext()) {
+                    insertChunk(connection, chunk, added);
+                    chunk.clear();
+                }
+            }
+            connection.commit();
+            return added;
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+    }
+
+    /**
+     * Обновляет набор товаров JDBC-пакетами в одной транзакции.
+     * @param products товары с обновленными данными (ищутся по ID)
+     */
+    @Override
+    public void updateProducts(Collection<ProductRecord> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE products SET name = ?, quantity = ?, tag = ? WHERE id = ?";
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                int pending = 0;
+                for (ProductRecord product : products) {
+                    setProductParameters(pstmt, product);
+                    pstmt.setInt(4, product.id());
+                    pstmt.addBatch();
+                    if (++pending == UPDATE_BATCH_SIZE) {
+                        pstmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+    }
+
+    /**
+     * Записывает набор товаров с их ID многострочными INSERT ... ON CONFLICT в одной транзакции.
+     * @param products товары с положительными ID
+     *
+     * <p>Логика работы:
+     * <ol>
+     *     <li>Делит набор на группы по {@value #INSERT_BATCH_ROWS} строк</li>
+     *     <li>Для каждой группы выполняет INSERT (id, ...) VALUES ... ON CONFLICT (id) DO UPDATE:
+     *     новые строки вставляются с переданным ID, существующие обновляются</li>
+     *     <li>Сдвигает последовательность id за наибольший записанный ID, чтобы
+     *     {@link #addProduct(ProductRecord)} не выдал занятый ID; сдвиг выполняется только
+     *     вызовами nextval, поэтому одновременные вставки и загрузки не уменьшают
+     *     последовательность</li>
+     *     <li>При ошибке откатывает всю транзакцию (уже сделанный сдвиг последовательности
+     *     остается и оставляет только пропуск в ID)</li>
+     * </ol>
+     */
+    @Override
+    public void upsertProducts(Collection<ProductRecord> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            Iterator<ProductRecord> iterator = products.iterator();
+            List<ProductRecord> chunk = new ArrayList<>(Math.min(products.size(), INSERT_BATCH_ROWS));
+            int maxId = 0;
+            while (iterator.hasNext()) {
+                ProductRecord product = iterator.next();
+                chunk.add(product);
+                maxId = Math.max(maxId, product.id());
+                if (chunk.size() == INSERT_BATCH_ROWS || !iterator.hasNext()) {
+                    upsertChunk(connection, chunk);
+                    chunk.clear();
+                }
+            }
+            advanceIdSequence(connection, maxId);
+            connection.commit();
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+    }
+
+    /**
+     * Удаляет набор товаров одним запросом DELETE ... WHERE id = ANY(?).
+     * @param ids идентификаторы удаляемых товаров
+     */
+    @Override
+    public void deleteProducts(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM products WHERE id = ANY(?)";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            Array array = connection.createArrayOf("integer", ids.toArray());
+            try {
+                pstmt.setArray(1, array);
+                pstmt.executeUpdate();
+            } finally {
+                array.free();
+            }
+        } catch (SQLException e) {
+            throw handleSQLException(e);
         }
     }
 
     /**
-     * Получает список всех товаров из базы данных.
-     * @return список товаров. Возвращает пустой список при ошибках выполнения запроса.
+     * Массово загружает товары из CSV-потока через COPY FROM STDIN.
+     * Строки передаются серверу потоково, без построения списка записей.
      *
      * <p>Особенности:
      * <ul>
-     *     <li>Использует простой Statement (нет параметризованных значений)</li>
-     *     <li>Не поддерживает пагинацию</li>
-     *     <li>Может вызвать OutOfMemoryError при большом количестве записей</li>
+     *     <li>ID берутся из файла; после загрузки последовательность id сдвигается за максимальный ID
+     *     так же, как в {@link #upsertProducts(Collection)}: только вперед, вызовами nextval</li>
+     *     <li>Пустое поле без кавычек загружается как NULL</li>
+     *     <li>Загрузка выполняется в одной транзакции; сдвиг последовательности при откате
+     *     не отменяется, что оставляет только пропуск в ID</li>
+     * </ul>
+     * @param in поток CSV в кодировке UTF-8 с заголовком id,name,quantity,tag
+     *           (тот же формат, что у {@link CsvProductDaoImpl} и {@link #exportProducts(OutputStream)})
+     * @return количество загруженных строк
+     * @throws RuntimeException при ошибках чтения потока или выполнения COPY
+     */
+    public long importProducts(InputStream in) {
+        String copySql = "COPY products (id, name, quantity, tag) FROM STDIN "
+                + "WITH (FORMAT csv, HEADER true, ENCODING 'UTF8')";
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            long rows = copyManager.copyIn(copySql, in);
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM products")) {
+                rs.next();
+                advanceIdSequence(connection, rs.getInt(1));
+            }
+            connection.commit();
+            return rows;
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Ошибка импорта товаров через COPY", e);
+        }
+    }
+
+    /**
+     * Массово выгружает все товары в CSV-поток через COPY TO STDOUT.
+     * Строки пишутся в поток по мере получения от сервера, без построения списка записей.
+     * @param out поток для записи CSV (UTF-8, заголовок id,name,quantity,tag, сортировка по id)
+     * @return количество выгруженных строк
+     * @throws RuntimeException при ошибках записи в поток или выполнения COPY
+     */
+    public long exportProducts(OutputStream out) {
+        String copySql = "COPY (SELECT id, name, quantity, tag FROM products ORDER BY id) TO STDOUT "
+                + "WITH (FORMAT csv, HEADER true, ENCODING 'UTF8')";
+        try (Connection connection = pool.getConnection()) {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            return copyManager.copyOut(copySql, out);
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Ошибка экспорта товаров через COPY", e);
+        }
+    }
+
+    /**
+     * Получает список всех товаров из базы данных в порядке возрастания ID.
+     * @return список товаров
+     * @throws RuntimeException при ошибках выполнения запроса
+     *
+     * <p>Особенности:
+     * <ul>
+     *     <li>При положительном размере выборки строки читаются через серверный курсор
+     *     порциями по {@link #setFetchSize(int)} строк, а не одним ответом сервера</li>
+     *     <li>Результирующий список все равно содержит всю таблицу;
+     *     для больших таблиц используйте {@link #getProductsAfter(int, int)}</li>
      * </ul>
      */
     @Override
-    public List<Product> getAllProducts() {
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products";
-        try (Statement stmt = connection.createStatement();
+    public List<ProductRecord> getAllProducts() {
+        List<ProductRecord> products = new ArrayList<>();
+        String sql = "SELECT id, name, quantity, tag FROM products ORDER BY id";
+        int rowsPerFetch = fetchSize;
+        try (Connection connection = pool.getConnection()) {
+            // pgjdbc открывает серверный курсор только вне режима autoCommit
+            connection.setAutoCommit(rowsPerFetch == 0);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.setFetchSize(rowsPerFetch);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        products.add(extractProductFromResultSet(rs));
+                    }
+                }
+            }
+            if (rowsPerFetch > 0) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+        return products;
+    }
+
+    /**
+     * Возвращает ленивый поток товаров в порядке возрастания ID.
+     * Строки читаются через серверный курсор порциями по {@link #setFetchSize(int)} строк
+     * по мере обхода потока, поэтому первая строка доступна до чтения всей таблицы.
+     * Поток удерживает соединение из пула до закрытия; его нужно закрывать,
+     * лучше через try-with-resources.
+     * @return поток товаров
+     * @throws RuntimeException при ошибках выполнения запроса (в том числе во время обхода)
+     */
+    @Override
+    public Stream<ProductRecord> streamProducts() {
+        String sql = "SELECT id, name, quantity, tag FROM products ORDER BY id";
+        int rowsPerFetch = fetchSize;
+        Connection connection = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            connection = pool.getConnection();
+            connection.setAutoCommit(rowsPerFetch == 0);
+            stmt = connection.createStatement();
+            stmt.setFetchSize(rowsPerFetch);
+            rs = stmt.executeQuery(sql);
+        } catch (SQLException e) {
+            closeQuietly(rs, stmt, connection);
+            throw new RuntimeException("Ошибка чтения товаров из PostgreSQL", e);
+        }
+        ResultSet cursor = rs;
+        Spliterator<ProductRecord> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT) {
+            @Override
+            public boolean tryAdvance(Consumer<? super ProductRecord> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(extractProductFromResultSet(cursor));
+                    return true;
+                } catch (SQLException e) {
+                    throw new RuntimeException("Ошибка чтения товаров из PostgreSQL", e);
+                }
+            }
+        };
+        Statement statement = stmt;
+        Connection streamConnection = connection;
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> closeQuietly(cursor, statement, streamConnection));
+    }
+
+    /**
+     * Находит товар по первичному ключу одним запросом.
+     * @param id идентификатор товара
+     * @return найденный товар или пустой Optional
+     * @throws RuntimeException при ошибках выполнения запроса
+     */
+    @Override
+    public Optional<ProductRecord> getProductById(int id) {
+        String sql = "SELECT id, name, quantity, tag FROM products WHERE id = ?";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(extractProductFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Изменяет количество одним запросом {@code UPDATE ... SET quantity = quantity + ? RETURNING quantity}.
+     * Строка блокируется сервером только на время UPDATE, одновременные изменения
+     * выполняются последовательно и не теряются.
+     * @param id идентификатор товара
+     * @param delta изменение количества
+     * @param nonNegative true, если количество не может стать отрицательным
+     *                    (условие quantity + delta >= 0 проверяется в том же UPDATE)
+     * @return новое количество или пустой OptionalInt, если товара нет
+     * @throws IllegalStateException если nonNegative и остатка недостаточно
+     * @throws RuntimeException при ошибках выполнения запроса (в том числе переполнении integer)
+     */
+    @Override
+    public OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        String sql = "UPDATE products SET quantity = quantity + ? WHERE id = ?" +
+                (nonNegative ? " AND quantity + ? >= 0" : "") +
+                " RETURNING quantity";
+        try (Connection connection = pool.getConnection()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setInt(1, delta);
+                pstmt.setInt(2, id);
+                if (nonNegative) {
+                    pstmt.setInt(3, delta);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return OptionalInt.of(rs.getInt(1));
+                    }
+                }
+            }
+            if (!nonNegative) {
+                return OptionalInt.empty();
+            }
+            // Строка не изменена: товара нет или остатка недостаточно
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT quantity FROM products WHERE id = ?")) {
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        throw QuantityAdjustment.insufficientQuantity(id, rs.getInt(1), delta);
+                    }
+                }
+            }
+            return OptionalInt.empty();
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+    }
+
+    /**
+     * Возвращает страницу товаров запросом WHERE id > ? ORDER BY id LIMIT ?.
+     * Использует индекс первичного ключа, поэтому стоимость не зависит от номера страницы
+     * (в отличие от OFFSET).
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество товаров на странице
+     * @return страница товаров в порядке возрастания ID
+     * @throws RuntimeException при ошибках выполнения запроса
+     */
+    @Override
+    public List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        PageCollector.checkLimit(limit);
+        List<ProductRecord> products = new ArrayList<>(Math.min(limit, DEFAULT_FETCH_SIZE));
+        String sql = "SELECT id, name, quantity, tag FROM products WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(extractProductFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+        return products;
+    }
+
+    /**
+     * Возвращает страницу товаров запросом ORDER BY ... LIMIT ? OFFSET ?.
+     * Сортировка по каждой колонке выполняется по индексу, поэтому первые страницы
+     * читаются быстро при любом размере таблицы; пропуск offset строк все же
+     * требует их обхода, и дальние страницы больших таблиц читаются дольше.
+     * @param sort порядок строк
+     * @param offset количество пропускаемых строк
+     * @param limit максимальное количество товаров на странице
+     * @return страница товаров
+     * @throws RuntimeException при ошибках выполнения запроса
+     */
+    @Override
+    public List<ProductRecord> getProductsPage(ProductSort sort, int offset, int limit) {
+        PageCollector.checkOffset(offset);
+        PageCollector.checkLimit(limit);
+        List<ProductRecord> products = new ArrayList<>(Math.min(limit, DEFAULT_FETCH_SIZE));
+        String sql = "SELECT id, name, quantity, tag FROM products ORDER BY " + orderBy(sort) + " LIMIT ? OFFSET ?";
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, limit);
+            pstmt.setInt(2, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(extractProductFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+        return products;
+    }
+
+    /**
+     * Считает товары запросом SELECT count(*): сервер обходит всю таблицу или индекс.
+     * @return точное количество товаров
+     * @throws RuntimeException при ошибках выполнения запроса
+     */
+    @Override
+    public int countProducts() {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT count(*) FROM products")) {
+            rs.next();
+            return Math.toIntExact(rs.getLong(1));
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+    }
+
+    /**
+     * Возвращает оценку количества строк из статистики планировщика (pg_class.reltuples)
+     * без обхода таблицы. Статистика обновляется VACUUM, ANALYZE и autovacuum,
+     * поэтому после массовых изменений оценка может отличаться от точного значения.
+     * Если статистики еще нет, выполняет точный подсчет.
+     * @return оценка количества товаров
+     * @throws RuntimeException при ошибках выполнения запроса
+     */
+    @Override
+    public int estimateProductCount() {
+        String sql = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'products'::regclass";
+        long estimate;
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                products.add(extractProductFromResultSet(rs));
+            rs.next();
+            estimate = rs.getLong(1);
+        } catch (SQLException e) {
+            throw handleSQLException(e);
+        }
+        // -1 - таблица еще ни разу не анализировалась
+        return estimate < 0 ? countProducts() : (int) Math.min(estimate, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Строит ORDER BY для порядка строк. Строки сравниваются по кодам символов (COLLATE "C"),
+     * как {@link ProductSort#comparator()}, и по индексам products_name_id_idx и products_tag_id_idx.
+     * @param sort порядок строк
+     * @return выражение сортировки без ключевого слова ORDER BY
+     */
+    private static String orderBy(ProductSort sort) {
+        String direction = sort.descending() ? " DESC" : "";
+        String column = switch (sort.column()) {
+            case ID -> null;
+            case NAME -> "name COLLATE \"C\"";
+            case QUANTITY -> "quantity";
+            case TAG -> "tag COLLATE \"C\"";
+        };
+        return column == null ? "id" + direction : column + direction + ", id" + direction;
+    }
+
+    /**
+     * Находит товары запросом с условиями WHERE, построенными по критериям поиска.
+     * Отбор выполняется сервером по индексам (tag, quantity) и (quantity),
+     * по сети передаются только подходящие строки.
+     * @param query критерии поиска
+     * @return подходящие товары в порядке возрастания ID
+     * @throws RuntimeException при ошибках выполнения запроса
+     */
+    @Override
+    public List<ProductRecord> findProducts(ProductQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT id, name, quantity, tag FROM products WHERE TRUE");
+        if (query.filtersByTag()) {
+            sql.append(query.tag() == null ? " AND tag IS NULL" : " AND tag = ?");
+        }
+        if (query.minQuantity() != Integer.MIN_VALUE) {
+            sql.append(" AND quantity >= ?");
+        }
+        if (query.maxQuantity() != Integer.MAX_VALUE) {
+            sql.append(" AND quantity <= ?");
+        }
+        sql.append(" ORDER BY id");
+        List<ProductRecord> products = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (query.filtersByTag() && query.tag() != null) {
+                pstmt.setString(index++, query.tag());
+            }
+            if (query.minQuantity() != Integer.MIN_VALUE) {
+                pstmt.setInt(index++, query.minQuantity());
+            }
+            if (query.maxQuantity() != Integer.MAX_VALUE) {
+                pstmt.setInt(index, query.maxQuantity());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(extractProductFromResultSet(rs));
+                }
             }
         } catch (SQLException e) {
-            handleSQLException(e);
+            throw handleSQLException(e);
         }
         return products;
     }
 
     /**
-     * Устанавливает источник данных для реализации DAO.
-     * @param source специфичный для реализации идентификатор источника данных
+     * Задает количество строк, получаемых с сервера за одно обращение при полном чтении таблицы.
+     * @param fetchSize размер порции; 0 отключает серверный курсор (вся таблица одним ответом)
+     * @throws IllegalArgumentException если значение отрицательное
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Переключает DAO на другую базу данных.
+     * @param source JDBC URL, например {@code jdbc:postgresql://host:5432/db?user=app&password=secret}
+     * @throws RuntimeException если не удалось подключиться (текущий пул при этом сохраняется)
      *
-     * <p>В текущей реализации:
+     * <p>Особенности:
      * <ul>
-     *     <li>Не поддерживается (заглушка)</li>
-     *     <li>Может быть реализовано переключение на другую БД</li>
+     *     <li>Учетные данные можно передать параметрами user и password в URL,
+     *     иначе используются заданные в конструкторе</li>
+     *     <li>Выданные ранее соединения старого пула закрываются при возврате</li>
      * </ul>
      */
     @Override
     public void setDataSource(String source) {
-        // Реализация переключения БД может быть добавлена здесь
+        connect(source);
     }
 
     /**
-     * Создает объект Product из ResultSet.
+     * Подписывает слушателя на изменения таблицы products, сделанные любым клиентом БД,
+     * включая этот DAO. При первой подписке запускается фоновый поток, который держит
+     * отдельное соединение (вне пула) с командой LISTEN.
+     * @param listener подписчик; вызывается в фоновом потоке в порядке подписки
+     *
+     * <p>Особенности:
+     * <ul>
+     *     <li>Изменения, сделанные до установки соединения LISTEN, не доставляются:
+     *     подписываться следует до первичной загрузки данных</li>
+     *     <li>При обрыве связи поток переподключается и вызывает
+     *     {@link ProductChangeListener#onChangesLost()}</li>
+     *     <li>Исключение слушателя записывается в журнал приложения и не прерывает доставку остальным</li>
+     * </ul>
+     */
+    public synchronized void addChangeListener(ProductChangeListener listener) {
+        changeListeners.add(listener);
+        if (changeListenerThread == null && !closed) {
+            changeListenerThread = new Thread(this::listenForChanges, "postgres-change-listener");
+            changeListenerThread.setDaemon(true);
+            changeListenerThread.start();
+        }
+    }
+
+    /**
+     * Отписывает слушателя от изменений таблицы.
+     * @param listener ранее подписанный слушатель
+     */
+    public void removeChangeListener(ProductChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Закрывает пул соединений и останавливает поток уведомлений об изменениях.
+     */
+    @Override
+    public void close() {
+        Thread listenerThread;
+        synchronized (this) {
+            closed = true;
+            listenerThread = changeListenerThread;
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            closeQuietly(listenConnection);
+        }
+        pool.close();
+    }
+
+    /**
+     * Цикл фонового потока: держит соединение с LISTEN и передает уведомления слушателям.
+     * После обрыва уже установленного соединения переподключается сразу,
+     * после неудачной попытки подключения - через {@link #LISTEN_RETRY_DELAY}.
+     */
+    private void listenForChanges() {
+        boolean listenedBefore = false;
+        while (!closed) {
+            boolean listening = false;
+            try (Connection connection = pool.openDedicatedConnection()) {
+                listenConnection = connection;
+                if (closed) {
+                    break;
+                }
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("LISTEN " + CHANGE_CHANNEL);
+                }
+                listening = true;
+                if (listenedBefore) {
+                    fireChangesLost();
+                }
+                listenedBefore = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (!closed) {
+                    PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_POLL_MILLIS);
+                    if (notifications != null && notifications.length > 0) {
+                        fireChanges(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                if (closed) {
+                    break;
+                }
+                // Уведомления, отправленные до переподключения, будут потеряны
+                listenedBefore = true;
+                if (!listening) {
+                    try {
+                        Thread.sleep(LISTEN_RETRY_DELAY.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        break;
+                    }
+                }
+            } finally {
+                listenConnection = null;
+            }
+        }
+    }
+
+    /**
+     * Передает слушателям изменения из полученных уведомлений. Если среди них есть
+     * массовое изменение ("операция:*"), отдельные ID не передаются: слушатели
+     * получают {@link ProductChangeListener#onChangesLost()} и перечитывают данные целиком.
+     */
+    private void fireChanges(PGNotification[] notifications) {
+        List<ProductChange> changes = new ArrayList<>(notifications.length);
+        for (PGNotification notification : notifications) {
+            if (CHANGE_CHANNEL.equals(notification.getName())) {
+                String payload = notification.getParameter();
+                if (ProductChange.isBulk(payload)) {
+                    fireChangesLost();
+                    return;
+                }
+                changes.addAll(ProductChange.parse(payload));
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<ProductChange> readOnlyChanges = List.copyOf(changes);
+        for (ProductChangeListener listener : changeListeners) {
+            try {
+                listener.onProductsChanged(readOnlyChanges);
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private void fireChangesLost() {
+        for (ProductChangeListener listener : changeListeners) {
+            try {
+                listener.onChangesLost();
+            } catch (RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private static void logListenerFailure(ProductChangeListener listener, RuntimeException e) {
+        LOGGER.log(System.Logger.Level.ERROR, "Ошибка слушателя изменений товаров " + listener, e);
+    }
+
+    /**
+     * Создает запись ProductRecord из ResultSet.
      * @param rs ResultSet с текущей позицией курсора
-     * @return новый объект Product
+     * @return новая запись
      * @throws SQLException при ошибках чтения данных
      *
      * <p>Ожидаемая структура ResultSet:
@@ -194,8 +1001,8 @@ public class PostgresProductDaoImpl implements ProductDao {
      *     <li>tag - VARCHAR</li>
      * </ul>
      */
-    private Product extractProductFromResultSet(ResultSet rs) throws SQLException {
-        return new Product(
+    private ProductRecord extractProductFromResultSet(ResultSet rs) throws SQLException {
+        return new ProductRecord(
                 rs.getInt("id"),
                 rs.getString("name"),
                 rs.getInt("quantity"),
@@ -216,35 +1023,150 @@ public class PostgresProductDaoImpl implements ProductDao {
      *     <li>tag (String)</li>
      * </ol>
      */
-    private void setProductParameters(PreparedStatement pstmt, Product product) throws SQLException {
-        pstmt.setString(1, product.getName());
-        pstmt.setInt(2, product.getQuantity());
-        pstmt.setString(3, product.getTag());
+    private void setProductParameters(PreparedStatement pstmt, ProductRecord product) throws SQLException {
+        pstmt.setString(1, product.name());
+        pstmt.setInt(2, product.quantity());
+        pstmt.setString(3, product.tag());
     }
 
     /**
-     * Обновляет ID продукта из сгенерированных ключей.
+     * Вставляет группу товаров одним многострочным INSERT.
+     * @param connection соединение с открытой транзакцией
+     * @param chunk группа товаров
+     * @param added список, в который дописываются товары с сгенерированными ID
+     * @throws SQLException при ошибках выполнения запроса
+     */
+    private void insertChunk(Connection connection, List<ProductRecord> chunk, List<ProductRecord> added)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO products (name, quantity, tag) VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        sql.append(" RETURNING id");
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (ProductRecord product : chunk) {
+                pstmt.setString(index++, product.name());
+                pstmt.setInt(index++, product.quantity());
+                pstmt.setString(index++, product.tag());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                for (ProductRecord product : chunk) {
+                    if (!rs.next()) {
+                        throw new SQLException("INSERT вернул меньше ID, чем было вставлено строк");
+                    }
+                    added.add(product.withId(rs.getInt(1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Сдвигает последовательность id за указанный ID, если она еще не дальше.
+     * Последовательность продвигается только вызовами nextval: setval перезаписал бы
+     * значения, выданные одновременными {@link #addProduct(ProductRecord)} между чтением
+     * и записью, и следующая вставка получила бы занятый ID.
+     * @param connection соединение с открытой транзакцией
+     * @param maxId наибольший записанный ID (0 - ничего не записано)
+     * @throws SQLException при ошибках выполнения запроса
+     */
+    private void advanceIdSequence(Connection connection, int maxId) throws SQLException {
+        if (maxId <= 0) {
+            return;
+        }
+        String sequence;
+        long lastValue;
+        String lastValueSql = "SELECT seq, COALESCE(pg_sequence_last_value(seq::regclass), 0) "
+                + "FROM pg_get_serial_sequence('products', 'id') AS seq";
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(lastValueSql)) {
+            rs.next();
+            sequence = rs.getString(1);
+            lastValue = rs.getLong(2);
+        }
+        if (lastValue >= maxId) {
+            return;
+        }
+        // nextval вызывается, пока значение не дойдет до maxId: сдвиги других транзакций
+        // засчитываются, и одновременные вызовы не уводят последовательность далеко вперед
+        String advanceSql = "WITH RECURSIVE advanced(value) AS (SELECT nextval(?::regclass) "
+                + "UNION ALL SELECT nextval(?::regclass) FROM advanced WHERE value < ?) "
+                + "SELECT MAX(value) FROM advanced";
+        try (PreparedStatement pstmt = connection.prepareStatement(advanceSql)) {
+            pstmt.setString(1, sequence);
+            pstmt.setString(2, sequence);
+            pstmt.setLong(3, maxId);
+            pstmt.executeQuery().close();
+        }
+    }
+
+    /**
+     * Вставляет или обновляет группу товаров одним многострочным INSERT ... ON CONFLICT.
+     * @param connection соединение с открытой транзакцией
+     * @param chunk группа товаров с ID (ID в группе не повторяются)
+     * @throws SQLException при ошибках выполнения запроса
+     */
+    private void upsertChunk(Connection connection, List<ProductRecord> chunk) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO products (id, name, quantity, tag) VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        sql.append(" ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, "
+                + "quantity = EXCLUDED.quantity, tag = EXCLUDED.tag");
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (ProductRecord product : chunk) {
+                pstmt.setInt(index++, product.id());
+                pstmt.setString(index++, product.name());
+                pstmt.setInt(index++, product.quantity());
+                pstmt.setString(index++, product.tag());
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Присваивает продукту ID из сгенерированных ключей.
      * @param pstmt PreparedStatement с сгенерированными ключами
-     * @param product объект для обновления
+     * @param product вставленная запись
+     * @return копия записи с сгенерированным ID
      * @throws SQLException при ошибках чтения ключей
      *
      * <p>Логика работы:
      * <ul>
      *     <li>Читает первый сгенерированный ключ</li>
-     *     <li>Устанавливает его как ID продукта</li>
-     *     <li>Ничего не делает если ключи отсутствуют</li>
+     *     <li>Возвращает копию записи с этим ID</li>
+     *     <li>Возвращает запись без изменений, если ключи отсутствуют</li>
      * </ul>
      */
-    private void updateProductIdFromGeneratedKeys(PreparedStatement pstmt, Product product) throws SQLException {
+    private ProductRecord withGeneratedId(PreparedStatement pstmt, ProductRecord product) throws SQLException {
         try (ResultSet rs = pstmt.getGeneratedKeys()) {
-            if (rs.next()) {
-                product.setId(rs.getInt(1));
+            return rs.next() ? product.withId(rs.getInt(1)) : product;
+        }
+    }
+
+    /**
+     * Закрывает ресурсы JDBC в переданном порядке, игнорируя ошибки закрытия.
+     * Соединение из пула при закрытии возвращается в пул (незавершенная транзакция откатывается).
+     * @param resources ресурсы для закрытия (null пропускаются)
+     */
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception ignored) {
+                // Ресурс уже непригоден, ошибку закрытия можно игнорировать
             }
         }
     }
 
     /**
      * Отображает ошибку подключения через JavaFX Alert.
+     * Вне потока JavaFX (например, при создании DAO в фоне через {@link AsyncProductDao})
+     * окно не показывается: ошибка передается вызывающему коду исключением.
      * @param e исключение с деталями ошибки
      *
      * <p>Отображает:
@@ -255,6 +1177,9 @@ public class PostgresProductDaoImpl implements ProductDao {
      * </ul>
      */
     private void showConnectionErrorAlert(SQLException e) {
+        if (!Platform.isFxApplicationThread()) {
+            return;
+        }
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Ошибка подключения");
         alert.setHeaderText("Не удалось подключиться к PostgreSQL");
@@ -263,17 +1188,13 @@ public class PostgresProductDaoImpl implements ProductDao {
     }
 
     /**
-     * Обрабатывает SQL-исключения.
-     * @param e исключение для обработки
-     *
-     * <p>Текущая реализация:
-     * <ul>
-     *     <li>Выводит stacktrace в консоль</li>
-     *     <li>Не прерывает выполнение программы</li>
-     *     <li>Может быть расширена для логирования в файл</li>
-     * </ul>
+     * Преобразует SQL-исключение в непроверяемое для передачи вызывающему коду.
+     * Ошибка доходит до UI и слоя метрик
+     * ({@link InstrumentedProductDao} считает ее в счетчике ошибок операции).
+     * @param e исходное исключение
+     * @return исключение для выброса через {@code throw}
      */
-    private void handleSQLException(SQLException e) {
-        e.printStackTrace();
+    private RuntimeException handleSQLException(SQLException e) {
+        return new RuntimeException("Ошибка выполнения запроса к PostgreSQL: " + e.getMessage(), e);
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+/**
+ * Изменение одной строки таблицы products, полученное через PostgreSQL LISTEN/NOTIFY.
+ * Содержит только тип операции и ID: актуальные данные продукта подписчик
+ * при необходимости читает сам (например, через {@link ProductDao#getProductById(int)}).
+ *
+ * @param type тип операции
+ * @param id идентификатор измененного продукта
+ * @see ProductChangeListener
+ */
+package com.example.lab2dao.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record ProductChange(Type type, int id) {
+    /**
+     * Тип операции над строкой.
+     */
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Проверяет, сообщает ли уведомление о массовом изменении без списка ID
+     * (вида {@code "UPDATE:*"}): запрос затронул слишком много строк.
+     * @param payload текст уведомления, сформированный триггером
+     * @return true для массового изменения
+     */
+    static boolean isBulk(String payload) {
+        return payload.endsWith(":*");
+    }
+
+    /**
+     * Разбирает полезную нагрузку уведомления вида {@code "UPDATE:42,43"}.
+     * @param payload текст уведомления, сформированный триггером
+     * @return изменения по одному на ID или пустой список, если формат не распознан
+     */
+    static List<ProductChange> parse(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            return List.of();
+        }
+        try {
+            Type type = Type.valueOf(payload.substring(0, separator));
+            String[] ids = payload.substring(separator + 1).split(",");
+            List<ProductChange> changes = new ArrayList<>(ids.length);
+            for (String id : ids) {
+                changes.add(new ProductChange(type, Integer.parseInt(id)));
+            }
+            return changes;
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Подписчик на изменения таблицы products, сделанные любым клиентом базы данных
+ * (см. {@link PostgresProductDaoImpl#addChangeListener(ProductChangeListener)}).
+ *
+ * <p>Методы вызываются в фоновом потоке DAO, по одному вызову за раз.
+ * Подписчик не должен надолго блокировать этот поток: например, UI переносит
+ * обработку в поток JavaFX через {@code Platform.runLater}.
+ *
+ * @see ProductChange
+ */
+package com.example.lab2dao.dao;
+
+import java.util.List;
+
+public interface ProductChangeListener {
+    /**
+     * Вызывается с изменениями, полученными за одно обращение к серверу,
+     * в порядке фиксации транзакций. Один ID может встречаться несколько раз.
+     * @param changes изменения строк
+     */
+    void onProductsChanged(List<ProductChange> changes);
+
+    /**
+     * Вызывается после восстановления прерванного подключения или смены базы данных,
+     * а также вместо списка изменений, если один запрос изменил слишком много строк:
+     * часть уведомлений могла быть потеряна или не содержит ID, и данные следует перечитать полностью.
+     */
+    default void onChangesLost() {
+    }
+}
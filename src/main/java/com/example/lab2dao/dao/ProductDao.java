@@ -9,6 +9,10 @@
  *     <li>Поддержка изменения источника данных во время выполнения</li>
  * </ul>
  *
+ * <p>Данные передаются неизменяемыми записями {@link ProductRecord}: слой доступа
+ * к данным не зависит от JavaFX, а записи можно безопасно передавать между потоками
+ * и хранить в индексах и кэшах.
+ *
  * <p>Реализации должны обеспечивать:
  * <ul>
  *     <li>Корректную генерацию ID при добавлении новых записей</li>
@@ -17,29 +21,44 @@
  * </ul>
  *
  * @see ProductDaoImpl
+ * @see ConcurrentProductDaoImpl
+ * @see ColumnarProductDaoImpl
  * @see ExcelProductDaoImpl
+ * @see LogProductDaoImpl
+ * @see CsvProductDaoImpl
  * @see PostgresProductDaoImpl
+ * @see CachingProductDao
+ * @see InstrumentedProductDao
+ * @see AsyncProductDao
+ * @see ProductMigration
  */
 package com.example.lab2dao.dao;
 
-import com.example.lab2dao.model.Product;
+import com.example.lab2dao.model.ProductRecord;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface ProductDao {
     /**
      * Добавляет новый продукт в хранилище данных.
-     * @param product добавляемый объект продукта (ID может игнорироваться)
+     * @param product добавляемый продукт (ID игнорируется)
+     * @return добавленный продукт с присвоенным хранилищем ID
      * @throws IllegalArgumentException если продукт не соответствует бизнес-правилам
      */
-    void addProduct(Product product);
+    ProductRecord addProduct(ProductRecord product);
 
     /**
      * Обновляет данные существующего продукта.
      * @param product объект продукта с обновленными данными (должен содержать валидный ID)
      * @throws IllegalArgumentException если продукт не найден или данные невалидны
      */
-    void updateProduct(Product product);
+    void updateProduct(ProductRecord product);
 
     /**
      * Удаляет продукт по идентификатору.
@@ -48,11 +67,208 @@ public interface ProductDao {
      */
     void deleteProduct(int id);
 
+    /**
+     * Добавляет набор продуктов одной пакетной операцией.
+     * Реализация по умолчанию вызывает {@link #addProduct(ProductRecord)} для каждого элемента;
+     * реализации должны переопределять метод, чтобы выполнять одну запись или один проход.
+     * @param products добавляемые продукты (ID игнорируются)
+     * @return добавленные продукты с присвоенными ID в порядке обхода коллекции
+     */
+    default List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        for (ProductRecord product : products) {
+            added.add(addProduct(product));
+        }
+        return added;
+    }
+
+    /**
+     * Обновляет набор продуктов одной пакетной операцией.
+     * Продукты с несуществующими ID игнорируются.
+     * @param products продукты с обновленными данными (ищутся по ID)
+     */
+    default void updateProducts(Collection<ProductRecord> products) {
+        for (ProductRecord product : products) {
+            updateProduct(product);
+        }
+    }
+
+    /**
+     * Удаляет набор продуктов одной пакетной операцией.
+     * Несуществующие ID игнорируются.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    default void deleteProducts(Collection<Integer> ids) {
+        for (int id : ids) {
+            deleteProduct(id);
+        }
+    }
+
+    /**
+     * Записывает набор продуктов с сохранением их ID: существующие продукты обновляются,
+     * отсутствующие добавляются с тем же ID. Используется для переноса и синхронизации
+     * данных между хранилищами ({@link ProductMigration}).
+     * Реализация по умолчанию обновляет существующие продукты через {@link #updateProducts(Collection)},
+     * а отсутствующие добавляет через {@link #addProducts(Collection)}, то есть с новыми ID;
+     * реализации должны переопределять метод, чтобы сохранять ID.
+     * @param products продукты с положительными неповторяющимися ID
+     */
+    default void upsertProducts(Collection<ProductRecord> products) {
+        List<ProductRecord> existing = new ArrayList<>();
+        List<ProductRecord> missing = new ArrayList<>();
+        for (ProductRecord product : products) {
+            (getProductById(product.id()).isPresent() ? existing : missing).add(product);
+        }
+        updateProducts(existing);
+        addProducts(missing);
+    }
+
     /**
      * Получает список всех доступных продуктов.
      * @return список продуктов. Пустой список если данные отсутствуют
      */
-    List<Product> getAllProducts();
+    List<ProductRecord> getAllProducts();
+
+    /**
+     * Возвращает ленивый поток всех продуктов.
+     * Поток может удерживать ресурсы (соединение с БД, открытый файл, фоновый поток),
+     * поэтому его нужно закрывать, лучше через try-with-resources.
+     * Реализация по умолчанию строит поток по {@link #getAllProducts()};
+     * реализации должны переопределять метод, чтобы отдавать продукты по мере чтения.
+     * @return последовательный поток продуктов
+     */
+    default Stream<ProductRecord> streamProducts() {
+        return getAllProducts().stream();
+    }
+
+    /**
+     * Находит продукты, удовлетворяющие запросу.
+     * Реализация по умолчанию фильтрует {@link #streamProducts()};
+     * реализации с индексами или языком запросов должны выполнять отбор на своей стороне.
+     * @param query критерии поиска
+     * @return подходящие продукты в порядке {@link #getAllProducts()}. Пустой список, если таких нет
+     */
+    default List<ProductRecord> findProducts(ProductQuery query) {
+        try (Stream<ProductRecord> products = streamProducts()) {
+            return products.filter(query::matches).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Находит продукт по идентификатору.
+     * Реализация по умолчанию выполняет линейный поиск по {@link #getAllProducts()};
+     * реализации с индексом по ID должны переопределять этот метод.
+     * @param id уникальный идентификатор продукта
+     * @return найденный продукт или пустой Optional, если продукт отсутствует
+     */
+    default Optional<ProductRecord> getProductById(int id) {
+        return getAllProducts().stream()
+                .filter(product -> product.id() == id)
+                .findFirst();
+    }
+
+    /**
+     * Возвращает страницу продуктов для keyset-пагинации по первичному ключу:
+     * до limit продуктов с ID больше afterId в порядке возрастания ID.
+     * Следующая страница запрашивается с ID последнего продукта текущей страницы.
+     * Реализация по умолчанию отбирает страницу из {@link #getAllProducts()};
+     * реализации с упорядоченным хранилищем должны переопределять этот метод.
+     * @param afterId ID, после которого начинается страница (0 — с начала)
+     * @param limit максимальное количество продуктов на странице
+     * @return страница продуктов. Пустой список, если продуктов после afterId нет
+     * @throws IllegalArgumentException если limit отрицательный
+     */
+    default List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        PageCollector collector = new PageCollector(afterId, limit);
+        getAllProducts().forEach(collector);
+        return collector.result();
+    }
+
+    /**
+     * Возвращает страницу продуктов в заданном порядке для постраничного отображения
+     * (например, таблицы, которая загружает только видимые строки).
+     * В отличие от {@link #getProductsAfter(int, int)} страница задается позицией,
+     * поэтому к любой строке можно перейти сразу; стоимость пропуска offset строк
+     * зависит от реализации.
+     * Реализация по умолчанию сортирует {@link #streamProducts()};
+     * реализации с индексами или языком запросов должны выполнять сортировку на своей стороне.
+     * @param sort порядок строк
+     * @param offset количество пропускаемых строк от начала
+     * @param limit максимальное количество продуктов на странице
+     * @return страница продуктов. Пустой список, если offset не меньше количества продуктов
+     * @throws IllegalArgumentException если offset или limit отрицательный
+     */
+    default List<ProductRecord> getProductsPage(ProductSort sort, int offset, int limit) {
+        PageCollector.checkOffset(offset);
+        PageCollector.checkLimit(limit);
+        try (Stream<ProductRecord> products = streamProducts()) {
+            return products.sorted(sort.comparator())
+                    .skip(offset)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Возвращает точное количество продуктов.
+     * Реализация по умолчанию считает элементы {@link #streamProducts()};
+     * реализации, которые знают количество, должны переопределять этот метод.
+     * @return количество продуктов
+     */
+    default int countProducts() {
+        try (Stream<ProductRecord> products = streamProducts()) {
+            return Math.toIntExact(products.count());
+        }
+    }
+
+    /**
+     * Возвращает приблизительное количество продуктов, которое можно получить
+     * значительно быстрее точного (например, из статистики БД).
+     * Подходит, чтобы сразу показать таблицу нужного размера, пока считается точное значение.
+     * Реализация по умолчанию возвращает {@link #countProducts()}.
+     * @return оценка количества продуктов
+     */
+    default int estimateProductCount() {
+        return countProducts();
+    }
+
+    /**
+     * Изменяет количество продукта на delta без ограничения снизу.
+     * @param id идентификатор продукта
+     * @param delta изменение количества (приход - положительное, расход - отрицательное)
+     * @return новое количество или пустой OptionalInt, если продукта нет
+     * @see #adjustQuantity(int, int, boolean)
+     */
+    default OptionalInt adjustQuantity(int id, int delta) {
+        return adjustQuantity(id, delta, false);
+    }
+
+    /**
+     * Атомарно изменяет количество продукта на delta. Остальные поля не читаются
+     * и не перезаписываются вызывающим кодом, поэтому одновременные изменения
+     * остатка не теряются (в отличие от чтения и {@link #updateProduct(ProductRecord)}).
+     * Реализация по умолчанию читает продукт через {@link #getProductById(int)} и сохраняет
+     * копию с новым количеством через {@link #updateProduct(ProductRecord)} под блокировкой DAO:
+     * атомарность обеспечивается только относительно других вызовов adjustQuantity этого объекта.
+     * Потокобезопасные реализации должны переопределять этот метод.
+     * @param id идентификатор продукта
+     * @param delta изменение количества (приход - положительное, расход - отрицательное)
+     * @param nonNegative true, если изменение нужно отклонить, когда количество станет отрицательным
+     * @return новое количество или пустой OptionalInt, если продукта нет
+     * @throws IllegalStateException если nonNegative и остатка недостаточно (количество не изменяется)
+     * @throws ArithmeticException если количество выходит за пределы int
+     */
+    default OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        synchronized (this) {
+            Optional<ProductRecord> found = getProductById(id);
+            if (found.isEmpty()) {
+                return OptionalInt.empty();
+            }
+            int quantity = QuantityAdjustment.apply(id, found.get().quantity(), delta, nonNegative);
+            updateProduct(found.get().withQuantity(quantity));
+            return OptionalInt.of(quantity);
+        }
+    }
 
     /**
      * Устанавливает источник данных для реализации DAO.
@@ -3,7 +3,12 @@
  *
  * <p>Особенности реализации:
  * <ul>
- *     <li>Данные хранятся в ArrayList</li>
+ *     <li>Данные хранятся в массиве в порядке добавления</li>
+ *     <li>Первичный индекс ID → позиция на примитивных int (без упаковки ключей)</li>
+ *     <li>Поиск, обновление и удаление по ID выполняются за O(1)</li>
+ *     <li>ID возрастают в порядке массива, поэтому страница по ID находится двоичным поиском</li>
+ *     <li>Вторичные индексы: хеш-индекс по тегу и упорядоченный индекс по количеству
+ *     для {@link #findProducts(ProductQuery)}</li>
  *     <li>Автоматическая генерация ID через инкрементный счетчик</li>
  *     <li>Не сохраняет данные между сеансами работы приложения</li>
  *     <li>Не потокобезопасная реализация</li>
@@ -20,23 +25,87 @@
  */
 package com.example.lab2dao.dao;
 
-import com.example.lab2dao.model.Product;
+import com.example.lab2dao.model.ProductRecord;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
 
 public class ProductDaoImpl implements ProductDao {
-    private final List<Product> products = new ArrayList<>();
+    /** Минимальное число удаленных ячеек, после которого возможно уплотнение. */
+    private static final int COMPACTION_THRESHOLD = 64;
+
+    private ProductRecord[] rows = new ProductRecord[16];
+    private int rowCount;
+    private int liveCount;
+    private final IntIndex index = new IntIndex();
+    private final Map<String, IntIndex> tagIndex = new HashMap<>();
+    private final NavigableMap<Integer, IntIndex> quantityIndex = new TreeMap<>();
     private int nextId = 1;
 
     /**
      * Добавляет новый продукт с автоматически сгенерированным ID.
      * @param product добавляемый продукт (существующий ID будет перезаписан)
+     * @return добавленный продукт с новым ID
+     */
+    @Override
+    public ProductRecord addProduct(ProductRecord product) {
+        ensureCapacity(rowCount + 1);
+        return append(product);
+    }
+
+    /**
+     * Добавляет набор продуктов за один проход с однократным расширением массива.
+     * @param products добавляемые продукты (существующие ID будут перезаписаны)
+     * @return добавленные продукты с новыми ID
+     */
+    @Override
+    public List<ProductRecord> addProducts(Collection<ProductRecord> products) {
+        ensureCapacity(rowCount + products.size());
+        List<ProductRecord> added = new ArrayList<>(products.size());
+        for (ProductRecord product : products) {
+            added.add(append(product));
+        }
+        return added;
+    }
+
+    /**
+     * Записывает продукты с их ID за один проход. Новые ID больше текущих
+     * дописываются в конец массива; если среди новых есть меньшие ID, массив
+     * один раз уплотняется и сортируется по ID, чтобы сохранить порядок для
+     * {@link #getProductsAfter(int, int)}.
+     * @param products продукты с положительными ID
      */
     @Override
-    public void addProduct(Product product) {
-        product.setId(nextId++);
-        products.add(product);
+    public void upsertProducts(Collection<ProductRecord> products) {
+        ensureCapacity(rowCount + products.size());
+        boolean ordered = true;
+        for (ProductRecord product : products) {
+            int row = index.get(product.id());
+            if (row != IntIndex.NO_VALUE) {
+                unindexRow(row);
+                rows[row] = product;
+                indexRow(row);
+                continue;
+            }
+            ordered &= product.id() >= nextId;
+            insert(product);
+            nextId = Math.max(nextId, product.id() + 1);
+        }
+        if (!ordered) {
+            sortById();
+        }
     }
 
     /**
@@ -44,31 +113,153 @@ public class ProductDaoImpl implements ProductDao {
      * @param product продукт с обновленными данными (должен содержать существующий ID)
      */
     @Override
-    public void updateProduct(Product product) {
-        for (int i = 0; i < products.size(); i++) {
-            if (products.get(i).getId() == product.getId()) {
-                products.set(i, product);
-                break;
-            }
+    public void updateProduct(ProductRecord product) {
+        int row = index.get(product.id());
+        if (row != IntIndex.NO_VALUE) {
+            unindexRow(row);
+            rows[row] = product;
+            indexRow(row);
+        }
+    }
+
+    /**
+     * Изменяет количество продукта, заменяя запись копией с новым количеством
+     * и обновляя индекс по количеству.
+     * @param id идентификатор продукта
+     * @param delta изменение количества
+     * @param nonNegative true, если количество не может стать отрицательным
+     * @return новое количество или пустой OptionalInt, если продукта нет
+     */
+    @Override
+    public OptionalInt adjustQuantity(int id, int delta, boolean nonNegative) {
+        int row = index.get(id);
+        if (row == IntIndex.NO_VALUE) {
+            return OptionalInt.empty();
         }
+        int quantity = QuantityAdjustment.apply(id, rows[row].quantity(), delta, nonNegative);
+        unindexRow(row);
+        rows[row] = rows[row].withQuantity(quantity);
+        indexRow(row);
+        return OptionalInt.of(quantity);
     }
 
     /**
      * Удаляет продукт по указанному ID.
+     * Освободившиеся ячейки периодически уплотняются с сохранением порядка добавления.
      * @param id идентификатор удаляемого продукта
      */
     @Override
     public void deleteProduct(int id) {
-        products.removeIf(product -> product.getId() == id);
+        if (remove(id)) {
+            compactIfNeeded();
+        }
     }
 
     /**
-     * Возвращает копию списка всех продуктов.
+     * Удаляет набор продуктов за один проход; уплотнение выполняется не более одного раза.
+     * @param ids идентификаторы удаляемых продуктов
+     */
+    @Override
+    public void deleteProducts(Collection<Integer> ids) {
+        for (int id : ids) {
+            remove(id);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Возвращает копию списка всех продуктов в порядке добавления.
      * @return новый ArrayList с текущими данными
      */
     @Override
-    public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+    public List<ProductRecord> getAllProducts() {
+        List<ProductRecord> result = new ArrayList<>(liveCount);
+        for (int i = 0; i < rowCount; i++) {
+            if (rows[i] != null) {
+                result.add(rows[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает ленивый поток продуктов по внутреннему массиву без копирования.
+     * Изменение DAO во время обхода не допускается (как и для коллекций).
+     * @return поток продуктов в порядке добавления
+     */
+    @Override
+    public Stream<ProductRecord> streamProducts() {
+        return Arrays.stream(rows, 0, rowCount).filter(Objects::nonNull);
+    }
+
+    /**
+     * Находит продукт по ID через первичный индекс за O(1).
+     * @param id идентификатор продукта
+     * @return найденный продукт или пустой Optional
+     */
+    @Override
+    public Optional<ProductRecord> getProductById(int id) {
+        int row = index.get(id);
+        return row == IntIndex.NO_VALUE ? Optional.empty() : Optional.of(rows[row]);
+    }
+
+    /**
+     * @return количество живых записей без обхода массива
+     */
+    @Override
+    public int countProducts() {
+        return liveCount;
+    }
+
+    /**
+     * Возвращает страницу продуктов с ID больше afterId.
+     * Живые записи массива упорядочены по ID, поэтому начало страницы
+     * находится двоичным поиском за O(log n), без обхода всего массива.
+     * @param afterId ID, после которого начинается страница
+     * @param limit максимальное количество продуктов на странице
+     * @return страница продуктов в порядке возрастания ID
+     */
+    @Override
+    public List<ProductRecord> getProductsAfter(int afterId, int limit) {
+        PageCollector.checkLimit(limit);
+        List<ProductRecord> page = new ArrayList<>(Math.min(limit, liveCount));
+        for (int row = firstRowAfter(afterId); row < rowCount && page.size() < limit; row++) {
+            if (rows[row] != null) {
+                page.add(rows[row]);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Находит продукты по вторичным индексам без просмотра всех записей.
+     * При заданных теге и диапазоне количества кандидаты берутся из меньшего индекса,
+     * второе условие проверяется по самой записи.
+     * @param query критерии поиска
+     * @return подходящие продукты в порядке добавления
+     */
+    @Override
+    public List<ProductRecord> findProducts(ProductQuery query) {
+        if (!query.filtersByTag() && !query.filtersByQuantity()) {
+            return getAllProducts();
+        }
+        RowCollector collector = new RowCollector(query);
+        NavigableMap<Integer, IntIndex> quantityRange = quantityIndex.subMap(
+                query.minQuantity(), true, query.maxQuantity(), true);
+        if (query.filtersByTag()) {
+            IntIndex tagged = tagIndex.get(query.tag());
+            if (tagged == null) {
+                return new ArrayList<>();
+            }
+            if (!query.filtersByQuantity() || tagged.size() <= postingCount(quantityRange, tagged.size())) {
+                tagged.forEachKey(collector);
+                return collector.result();
+            }
+        }
+        for (IntIndex ids : quantityRange.values()) {
+            ids.forEachKey(collector);
+        }
+        return collector.result();
     }
 
     /**
@@ -79,4 +270,181 @@ public class ProductDaoImpl implements ProductDao {
     public void setDataSource(String source) {
         // In-memory реализация не требует внешних источников данных
     }
-}
\ No newline at end of file
+
+    private ProductRecord append(ProductRecord product) {
+        ProductRecord added = product.withId(nextId++);
+        insert(added);
+        return added;
+    }
+
+    private void insert(ProductRecord product) {
+        index.put(product.id(), rowCount);
+        rows[rowCount] = product;
+        indexRow(rowCount++);
+        liveCount++;
+    }
+
+    private boolean remove(int id) {
+        int row = index.remove(id);
+        if (row == IntIndex.NO_VALUE) {
+            return false;
+        }
+        unindexRow(row);
+        rows[row] = null;
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * Вносит строку во вторичные индексы.
+     * @param row позиция живой записи
+     */
+    private void indexRow(int row) {
+        ProductRecord product = rows[row];
+        addPosting(tagIndex, product.tag(), product.id());
+        addPosting(quantityIndex, product.quantity(), product.id());
+    }
+
+    /**
+     * Удаляет строку из вторичных индексов (записи неизменяемы, поэтому значения
+     * в строке совпадают с индексированными).
+     * @param row позиция живой записи
+     */
+    private void unindexRow(int row) {
+        ProductRecord product = rows[row];
+        removePosting(tagIndex, product.tag(), product.id());
+        removePosting(quantityIndex, product.quantity(), product.id());
+    }
+
+    private static <K> void addPosting(Map<K, IntIndex> secondaryIndex, K key, int id) {
+        secondaryIndex.computeIfAbsent(key, k -> new IntIndex(2)).put(id, 0);
+    }
+
+    private static <K> void removePosting(Map<K, IntIndex> secondaryIndex, K key, int id) {
+        IntIndex ids = secondaryIndex.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.size() == 0) {
+                secondaryIndex.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Считает ID в диапазоне индекса количества, прекращая подсчет после превышения limit.
+     * @param range диапазон индекса количества
+     * @param limit граница, после которой точное значение не нужно
+     * @return количество ID в диапазоне или любое значение больше limit
+     */
+    private static int postingCount(NavigableMap<Integer, IntIndex> range, int limit) {
+        int count = 0;
+        for (IntIndex ids : range.values()) {
+            count += ids.size();
+            if (count > limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Двоичный поиск позиции первой живой записи с ID больше afterId.
+     * Удаленные ячейки пропускаются: для них берется ближайшая живая запись справа.
+     * @param afterId граница поиска (не включается)
+     * @return позиция, начиная с которой нужно просматривать массив
+     */
+    private int firstRowAfter(int afterId) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int probe = mid;
+            while (probe < high && rows[probe] == null) {
+                probe++;
+            }
+            if (probe == high || rows[probe].id() > afterId) {
+                high = mid;
+            } else {
+                low = probe + 1;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > rows.length) {
+            int newLength = Math.max(capacity, rows.length * 2);
+            rows = Arrays.copyOf(rows, newLength);
+        }
+    }
+
+    private void compactIfNeeded() {
+        int deleted = rowCount - liveCount;
+        if (deleted >= COMPACTION_THRESHOLD && deleted > liveCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Сдвигает живые записи к началу массива и перестраивает позиции в индексе.
+     * Амортизированная стоимость удаления остается O(1).
+     */
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < rowCount; i++) {
+            ProductRecord product = rows[i];
+            if (product != null) {
+                rows[target] = product;
+                index.put(product.id(), target);
+                target++;
+            }
+        }
+        Arrays.fill(rows, target, rowCount, null);
+        rowCount = target;
+    }
+
+    /**
+     * Уплотняет массив и упорядочивает записи по ID после вставки ID не по возрастанию.
+     */
+    private void sortById() {
+        compact();
+        Arrays.sort(rows, 0, rowCount, Comparator.comparingInt(ProductRecord::id));
+        for (int i = 0; i < rowCount; i++) {
+            index.put(rows[i].id(), i);
+        }
+    }
+
+    /**
+     * Собирает позиции записей, подходящих под запрос, по ID из вторичного индекса
+     * и выдает продукты в порядке позиций (то есть в порядке добавления).
+     */
+    private final class RowCollector implements IntConsumer {
+        private final ProductQuery query;
+        private int[] matchedRows = new int[16];
+        private int size;
+
+        RowCollector(ProductQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public void accept(int id) {
+            int row = index.get(id);
+            if (query.matches(rows[row])) {
+                if (size == matchedRows.length) {
+                    matchedRows = Arrays.copyOf(matchedRows, size * 2);
+                }
+                matchedRows[size++] = row;
+            }
+        }
+
+        List<ProductRecord> result() {
+            Arrays.sort(matchedRows, 0, size);
+            List<ProductRecord> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(rows[matchedRows[i]]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/**
+ * Перенос и синхронизация продуктов между двумя любыми реализациями {@link ProductDao}
+ * (память, Excel, CSV, журнал, PostgreSQL) с сохранением ID.
+ *
+ * <p>Конвейер переноса:
+ * <ol>
+ *     <li>Вызывающий поток читает источник потоком {@link ProductDao#streamProducts()},
+ *     применяет преобразование и собирает пакеты по batchSize строк</li>
+ *     <li>Пакеты передаются через ограниченную очередь (queueCapacity пакетов): если приемник
+ *     не успевает, чтение приостанавливается, и в памяти держится не более
+ *     (queueCapacity + writerThreads + 1) пакетов</li>
+ *     <li>writerThreads рабочих потоков записывают пакеты в приемник
+ *     через {@link ProductDao#upsertProducts(Collection)}</li>
+ *     <li>В режиме {@link Mode#FULL_COPY} после записи из приемника удаляются строки,
+ *     которых нет в источнике</li>
+ * </ol>
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Несколько рабочих потоков имеют смысл только для потокобезопасного приемника,
+ *     который выполняет пакеты параллельно (PostgreSQL, {@link ConcurrentProductDaoImpl});
+ *     для непотокобезопасного приемника нужен один рабочий поток</li>
+ *     <li>Файловые приемники переписывают файл на каждый пакет, поэтому для них
+ *     нужны крупные пакеты</li>
+ *     <li>Ошибка чтения или записи останавливает перенос: оставшиеся пакеты не записываются,
+ *     а {@link #run(ProductDao, ProductDao, Consumer)} выбрасывает исключение
+ *     (уже записанные пакеты остаются в приемнике)</li>
+ *     <li>Ход переноса сообщается не чаще раза в {@value #PROGRESS_INTERVAL_MILLIS} мс</li>
+ * </ul>
+ *
+ * <p>Пример:
+ * <pre>{@code
+ * ProductMigration.of(ProductMigration.Mode.UPSERT)
+ *         .withWriterThreads(4)
+ *         .run(excelDao, postgresDao, progress -> System.out.println(progress.rowsPerSecond()));
+ * }</pre>
+ *
+ * <p>Объект неизменяемый: каждый метод with... возвращает новые параметры переноса.
+ *
+ * @param mode режим переноса
+ * @param batchSize количество строк в пакете записи
+ * @param writerThreads количество потоков, записывающих пакеты в приемник
+ * @param queueCapacity количество пакетов, ожидающих записи
+ * @param transform преобразование строки перед записью; null в результате пропускает строку
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public record ProductMigration(Mode mode, int batchSize, int writerThreads, int queueCapacity,
+                               Function<ProductRecord, ProductRecord> transform) {
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4;
+    /** Минимальный интервал между сообщениями о ходе переноса. */
+    private static final long PROGRESS_INTERVAL_MILLIS = 500;
+    /** Маркер конца данных в очереди пакетов (пустые пакеты в очередь не попадают). */
+    private static final List<ProductRecord> END_OF_DATA = List.of();
+
+    /**
+     * @throws NullPointerException если не задан режим или преобразование
+     * @throws IllegalArgumentException если размер пакета, количество потоков или емкость очереди меньше 1
+     */
+    public ProductMigration {
+        Objects.requireNonNull(mode, "Не задан режим переноса");
+        Objects.requireNonNull(transform, "Не задано преобразование строк");
+        if (batchSize < 1 || writerThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Некорректные параметры переноса данных: пакет " + batchSize
+                    + ", потоков " + writerThreads + ", очередь " + queueCapacity);
+        }
+    }
+
+    /**
+     * @param mode режим переноса
+     * @return перенос пакетами по {@value #DEFAULT_BATCH_SIZE} строк в одном рабочем потоке без преобразования
+     */
+    public static ProductMigration of(Mode mode) {
+        return new ProductMigration(mode, DEFAULT_BATCH_SIZE, 1, DEFAULT_QUEUE_CAPACITY, Function.identity());
+    }
+
+    /**
+     * @param batchSize количество строк в пакете записи
+     * @return новые параметры с заданным размером пакета
+     */
+    public ProductMigration withBatchSize(int batchSize) {
+        return new ProductMigration(mode, batchSize, writerThreads, queueCapacity, transform);
+    }
+
+    /**
+     * @param writerThreads количество потоков, записывающих пакеты в приемник
+     * @return новые параметры с заданным количеством рабочих потоков
+     */
+    public ProductMigration withWriterThreads(int writerThreads) {
+        return new ProductMigration(mode, batchSize, writerThreads, queueCapacity, transform);
+    }
+
+    /**
+     * @param queueCapacity количество пакетов, ожидающих записи
+     * @return новые параметры с заданной емкостью очереди
+     */
+    public ProductMigration withQueueCapacity(int queueCapacity) {
+        return new ProductMigration(mode, batchSize, writerThreads, queueCapacity, transform);
+    }
+
+    /**
+     * @param transform преобразование строки перед записью (выполняется в читающем потоке);
+     *                  null в результате пропускает строку
+     * @return новые параметры с заданным преобразованием
+     */
+    public ProductMigration withTransform(Function<ProductRecord, ProductRecord> transform) {
+        return new ProductMigration(mode, batchSize, writerThreads, queueCapacity, transform);
+    }
+
+    /**
+     * Переносит продукты из источника в приемник и блокируется до окончания переноса.
+     * @param source источник (читается одним потоком {@link ProductDao#streamProducts()})
+     * @param target приемник
+     * @param onProgress получатель хода переноса; вызывается из рабочих потоков,
+     *                   последний раз - из вызывающего потока с {@link Progress#finished()}
+     * @return итог переноса
+     * @throws IllegalArgumentException если источник и приемник - один объект
+     * @throws RuntimeException при ошибках чтения, записи или прерывании потока
+     */
+    public Progress run(ProductDao source, ProductDao target, Consumer<Progress> onProgress) {
+        if (source == target) {
+            throw new IllegalArgumentException("Источник и приемник переноса совпадают");
+        }
+        Transfer transfer = new Transfer(target, onProgress, source.estimateProductCount());
+        transfer.start();
+        transfer.read(source);
+        transfer.awaitWriters();
+        if (transfer.failure == null && mode == Mode.FULL_COPY) {
+            transfer.deleteMissing();
+        }
+        if (transfer.failure != null) {
+            throw new RuntimeException("Ошибка переноса данных", transfer.failure);
+        }
+        Progress result = transfer.progress(true);
+        onProgress.accept(result);
+        return result;
+    }
+
+    /**
+     * Режимы переноса.
+     */
+    public enum Mode {
+        /** Приемник становится копией источника: строки записываются по ID, лишние удаляются. */
+        FULL_COPY,
+        /** Строки источника записываются по ID, остальные строки приемника не затрагиваются. */
+        UPSERT
+    }
+
+    /**
+     * Ход переноса.
+     * @param rowsRead прочитано строк источника (включая пропущенные преобразованием)
+     * @param rowsWritten записано строк в приемник
+     * @param rowsDeleted удалено лишних строк приемника ({@link Mode#FULL_COPY})
+     * @param expectedRows оценка количества строк источника ({@link ProductDao#estimateProductCount()})
+     * @param elapsed время от начала переноса
+     * @param finished true для итога успешно завершенного переноса
+     */
+    public record Progress(long rowsRead, long rowsWritten, long rowsDeleted, int expectedRows,
+                           Duration elapsed, boolean finished) {
+        /**
+         * @return средняя скорость записи в строках в секунду
+         */
+        public double rowsPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos == 0 ? 0 : rowsWritten * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * Состояние одного выполнения переноса, разделяемое читающим и рабочими потоками.
+     */
+    private final class Transfer {
+        private final ProductDao target;
+        private final Consumer<Progress> onProgress;
+        private final int expectedRows;
+        private final long startNanos = System.nanoTime();
+        private final BlockingQueue<List<ProductRecord>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final List<Thread> writers = new ArrayList<>(writerThreads);
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsWritten = new AtomicLong();
+        private final AtomicLong rowsDeleted = new AtomicLong();
+        private final AtomicLong nextReportNanos = new AtomicLong(startNanos);
+        /** ID записанных строк; заполняется только читающим потоком в режиме FULL_COPY. */
+        private final IntIndex copiedIds;
+        private volatile Throwable failure;
+
+        Transfer(ProductDao target, Consumer<Progress> onProgress, int expectedRows) {
+            this.target = target;
+            this.onProgress = onProgress;
+            this.expectedRows = expectedRows;
+            this.copiedIds = mode == Mode.FULL_COPY ? new IntIndex(Math.max(expectedRows, 16)) : null;
+        }
+
+        void start() {
+            for (int i = 0; i < writerThreads; i++) {
+                Thread writer = new Thread(this::write, "product-migration-writer-" + i);
+                writer.setDaemon(true);
+                writers.add(writer);
+                writer.start();
+            }
+        }
+
+        /**
+         * Читает источник и ставит пакеты в очередь, затем - маркеры конца данных
+         * для каждого рабочего потока. Рабочие потоки разбирают очередь до маркера
+         * и после ошибки; если же ни одного рабочего потока не осталось, чтение
+         * прекращается, а не ждет места в очереди.
+         */
+        void read(ProductDao source) {
+            try {
+                try (Stream<ProductRecord> rows = source.streamProducts()) {
+                    Iterator<ProductRecord> iterator = rows.iterator();
+                    List<ProductRecord> batch = new ArrayList<>(batchSize);
+                    while (failure == null && iterator.hasNext()) {
+                        ProductRecord product = transform.apply(iterator.next());
+                        rowsRead.incrementAndGet();
+                        if (product == null) {
+                            continue;
+                        }
+                        batch.add(product);
+                        if (copiedIds != null) {
+                            copiedIds.put(product.id(), 0);
+                        }
+                        if (batch.size() == batchSize) {
+                            enqueue(batch);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (failure == null && !batch.isEmpty()) {
+                        enqueue(batch);
+                    }
+                } catch (RuntimeException | Error e) {
+                    fail(e);
+                }
+                for (int i = 0; i < writerThreads; i++) {
+                    if (!enqueue(END_OF_DATA)) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                writers.forEach(Thread::interrupt);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void awaitWriters() {
+            try {
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                writers.forEach(Thread::interrupt);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Удаляет из приемника строки, ID которых не были записаны, пакетами по batchSize.
+         * ID собираются до удаления: in-memory реализации не допускают изменений во время обхода.
+         */
+        void deleteMissing() {
+            List<Integer> missing = new ArrayList<>();
+            try {
+                try (Stream<ProductRecord> rows = target.streamProducts()) {
+                    rows.mapToInt(ProductRecord::id)
+                            .filter(id -> !copiedIds.containsKey(id))
+                            .forEach(missing::add);
+                }
+                for (int from = 0; from < missing.size(); from += batchSize) {
+                    List<Integer> chunk = missing.subList(from, Math.min(from + batchSize, missing.size()));
+                    target.deleteProducts(chunk);
+                    rowsDeleted.addAndGet(chunk.size());
+                    reportIfDue();
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void write() {
+            try {
+                while (true) {
+                    List<ProductRecord> batch = queue.take();
+                    if (batch == END_OF_DATA) {
+                        return;
+                    }
+                    if (failure != null) {
+                        continue;
+                    }
+                    try {
+                        target.upsertProducts(batch);
+                        rowsWritten.addAndGet(batch.size());
+                        reportIfDue();
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Ставит пакет в очередь, периодически проверяя, что его есть кому забрать.
+         * @return false, если все рабочие потоки завершились и пакет не поставлен
+         */
+        private boolean enqueue(List<ProductRecord> batch) throws InterruptedException {
+            while (!queue.offer(batch, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (writers.stream().noneMatch(Thread::isAlive)) {
+                    fail(new IllegalStateException("Рабочие потоки переноса завершились до конца данных"));
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Сообщает ход переноса, если с прошлого сообщения прошел интервал.
+         * Из одновременно завершивших пакет потоков сообщает только один.
+         */
+        private void reportIfDue() {
+            long now = System.nanoTime();
+            long due = nextReportNanos.get();
+            if (now - due >= 0
+                    && nextReportNanos.compareAndSet(due, now + TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS))) {
+                onProgress.accept(progress(false));
+            }
+        }
+
+        private Progress progress(boolean finished) {
+            return new Progress(rowsRead.get(), rowsWritten.get(), rowsDeleted.get(), expectedRows,
+                    Duration.ofNanos(System.nanoTime() - startNanos), finished);
+        }
+
+        private void fail(Throwable error) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = error;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Критерии поиска продуктов для {@link ProductDao#findProducts(ProductQuery)}.
+ * Условия объединяются по И: продукт подходит, если совпадает тег (когда он задан)
+ * и количество попадает в диапазон (когда он задан).
+ *
+ * <p>Пример:
+ * <pre>{@code
+ * ProductQuery query = ProductQuery.all()
+ *         .withTag("фрукты")
+ *         .withQuantityBetween(10, 100);
+ * }</pre>
+ *
+ * <p>Объект неизменяемый: каждый метод with... возвращает новый запрос.
+ *
+ * @param filtersByTag true, если задано условие на тег
+ * @param tag искомый тег (null означает продукты без тега); учитывается только при filtersByTag
+ * @param minQuantity нижняя граница количества включительно
+ * @param maxQuantity верхняя граница количества включительно
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.util.Objects;
+
+public record ProductQuery(boolean filtersByTag, String tag, int minQuantity, int maxQuantity) {
+    private static final ProductQuery ALL =
+            new ProductQuery(false, null, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    /**
+     * @throws IllegalArgumentException если нижняя граница количества больше верхней
+     */
+    public ProductQuery {
+        if (minQuantity > maxQuantity) {
+            throw new IllegalArgumentException(
+                    "Нижняя граница количества больше верхней: " + minQuantity + " > " + maxQuantity);
+        }
+        if (!filtersByTag) {
+            tag = null;
+        }
+    }
+
+    /**
+     * @return запрос без условий (подходят все продукты)
+     */
+    public static ProductQuery all() {
+        return ALL;
+    }
+
+    /**
+     * @param tag искомый тег (null — продукты без тега)
+     * @return новый запрос с условием равенства тега
+     */
+    public ProductQuery withTag(String tag) {
+        return new ProductQuery(true, tag, minQuantity, maxQuantity);
+    }
+
+    /**
+     * @param min нижняя граница включительно
+     * @param max верхняя граница включительно
+     * @return новый запрос с условием на диапазон количества
+     * @throws IllegalArgumentException если min больше max
+     */
+    public ProductQuery withQuantityBetween(int min, int max) {
+        return new ProductQuery(filtersByTag, tag, min, max);
+    }
+
+    /**
+     * @param min нижняя граница включительно
+     * @return новый запрос с условием количество >= min
+     */
+    public ProductQuery withQuantityAtLeast(int min) {
+        return new ProductQuery(filtersByTag, tag, min, maxQuantity);
+    }
+
+    /**
+     * @param max верхняя граница включительно
+     * @return новый запрос с условием количество <= max
+     */
+    public ProductQuery withQuantityAtMost(int max) {
+        return new ProductQuery(filtersByTag, tag, minQuantity, max);
+    }
+
+    /**
+     * @return true, если задана хотя бы одна граница количества
+     */
+    public boolean filtersByQuantity() {
+        return minQuantity != Integer.MIN_VALUE || maxQuantity != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Проверяет продукт на соответствие запросу.
+     * @param product проверяемый продукт
+     * @return true, если продукт удовлетворяет всем условиям
+     */
+    public boolean matches(ProductRecord product) {
+        return matches(product.tag(), product.quantity());
+    }
+
+    /**
+     * Проверяет значения полей на соответствие запросу.
+     * @param productTag тег продукта
+     * @param quantity количество продукта
+     * @return true, если значения удовлетворяют всем условиям
+     */
+    public boolean matches(String productTag, int quantity) {
+        return (!filtersByTag || Objects.equals(tag, productTag))
+                && quantity >= minQuantity && quantity <= maxQuantity;
+    }
+}
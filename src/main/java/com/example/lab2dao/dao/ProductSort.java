@@ -0,0 +1,63 @@
+/**
+ * Порядок строк для постраничного чтения {@link ProductDao#getProductsPage(ProductSort, int, int)}.
+ * Строки упорядочиваются по выбранной колонке, при равных значениях - по ID в том же
+ * направлении, поэтому порядок однозначен и соседние страницы не пересекаются.
+ *
+ * <p>Сравнение значений одинаково во всех реализациях:
+ * <ul>
+ *     <li>Наименования и теги сравниваются по кодам символов, как {@link String#compareTo(String)}
+ *     (в PostgreSQL - COLLATE "C")</li>
+ *     <li>Товары без наименования или тега идут после остальных по возрастанию и перед ними
+ *     по убыванию, как NULL в PostgreSQL</li>
+ * </ul>
+ *
+ * @param column колонка сортировки
+ * @param descending true - по убыванию, false - по возрастанию
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+public record ProductSort(Column column, boolean descending) {
+    private static final ProductSort BY_ID = new ProductSort(Column.ID, false);
+
+    /**
+     * @throws NullPointerException если колонка не задана
+     */
+    public ProductSort {
+        Objects.requireNonNull(column, "Не задана колонка сортировки");
+    }
+
+    /**
+     * @return порядок по возрастанию ID (порядок {@link ProductDao#getProductsAfter(int, int)})
+     */
+    public static ProductSort byId() {
+        return BY_ID;
+    }
+
+    /**
+     * @return компаратор записей в этом порядке
+     */
+    public Comparator<ProductRecord> comparator() {
+        Comparator<ProductRecord> byId = Comparator.comparingInt(ProductRecord::id);
+        Comparator<ProductRecord> ascending = switch (column) {
+            case ID -> byId;
+            case NAME -> Comparator.comparing(ProductRecord::name, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(byId);
+            case QUANTITY -> Comparator.comparingInt(ProductRecord::quantity).thenComparing(byId);
+            case TAG -> Comparator.comparing(ProductRecord::tag, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(byId);
+        };
+        return descending ? ascending.reversed() : ascending;
+    }
+
+    /**
+     * Колонки, по которым возможна сортировка.
+     */
+    public enum Column {
+        ID, NAME, QUANTITY, TAG
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Превращает источник, который сам передает элементы обработчику (SAX-разбор и т.п.),
+ * в ленивый {@link Stream}, из которого элементы забираются по мере обхода.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Источник выполняется в отдельном фоновом потоке</li>
+ *     <li>Потоки связаны ограниченной очередью: при ее заполнении источник ждет
+ *     потребителя (обратное давление), поэтому расход памяти не зависит от объема данных</li>
+ *     <li>Исключение источника пробрасывается потребителю при обходе</li>
+ *     <li>Закрытие потока останавливает источник; поток нужно закрывать
+ *     (лучше через try-with-resources), иначе фоновый поток остается заблокированным</li>
+ * </ul>
+ */
+package com.example.lab2dao.dao;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class PushStream {
+    private static final Object END = new Object();
+
+    private PushStream() {
+    }
+
+    /**
+     * Запускает источник в фоновом потоке и возвращает поток его элементов.
+     * @param source источник, передающий элементы полученному обработчику
+     * @param bufferSize емкость очереди между источником и потребителем
+     * @param threadName имя фонового потока
+     * @return последовательный упорядоченный поток элементов
+     */
+    static <T> Stream<T> of(Consumer<Consumer<T>> source, int bufferSize, String threadName) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize);
+        Thread producer = new Thread(() -> produce(source, queue), threadName);
+        producer.setDaemon(true);
+        producer.start();
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean finished;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (finished) {
+                    return false;
+                }
+                Object next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Ожидание данных прервано");
+                }
+                if (next == END) {
+                    finished = true;
+                    return false;
+                }
+                if (next instanceof Failure failure) {
+                    finished = true;
+                    throw failure.error();
+                }
+                @SuppressWarnings("unchecked")
+                T element = (T) next;
+                action.accept(element);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(producer::interrupt);
+    }
+
+    private static <T> void produce(Consumer<Consumer<T>> source, BlockingQueue<Object> queue) {
+        try {
+            source.accept(element -> {
+                try {
+                    queue.put(element);
+                } catch (InterruptedException e) {
+                    // Поток закрыт потребителем: прерываем разбор источника
+                    throw new CancellationException();
+                }
+            });
+            queue.put(END);
+        } catch (CancellationException | InterruptedException e) {
+            // Потребитель больше не ждет элементов
+        } catch (RuntimeException e) {
+            try {
+                queue.put(new Failure(e));
+            } catch (InterruptedException ignored) {
+                // Потребитель закрыл поток, ошибку передавать некому
+            }
+        }
+    }
+
+    /**
+     * Ошибка источника, передаваемая потребителю через очередь.
+     */
+    private record Failure(RuntimeException error) {
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Общие правила изменения количества для {@link ProductDao#adjustQuantity(int, int, boolean)}:
+ * проверка переполнения и запрета отрицательного остатка с единым текстом ошибки.
+ */
+package com.example.lab2dao.dao;
+
+final class QuantityAdjustment {
+    private QuantityAdjustment() {
+    }
+
+    /**
+     * @param id идентификатор продукта (для сообщения об ошибке)
+     * @param quantity текущее количество
+     * @param delta изменение количества
+     * @param nonNegative true, если результат не может быть отрицательным
+     * @return новое количество
+     * @throws ArithmeticException при переполнении int
+     * @throws IllegalStateException если nonNegative и остатка недостаточно
+     */
+    static int apply(int id, int quantity, int delta, boolean nonNegative) {
+        int adjusted = Math.addExact(quantity, delta);
+        if (nonNegative && adjusted < 0) {
+            throw insufficientQuantity(id, quantity, delta);
+        }
+        return adjusted;
+    }
+
+    /**
+     * @param id идентификатор продукта
+     * @param quantity текущее количество
+     * @param delta отклоненное изменение
+     * @return исключение об отклоненном изменении
+     */
+    static IllegalStateException insufficientQuantity(int id, int quantity, int delta) {
+        return new IllegalStateException(
+                "Недостаточно товара с ID " + id + ": остаток " + quantity + ", изменение " + delta);
+    }
+}
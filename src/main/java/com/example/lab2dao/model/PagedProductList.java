@@ -0,0 +1,471 @@
+/**
+ * Наблюдаемый список товаров для TableView, который загружает строки страницами по мере
+ * прокрутки. Размер списка задается заранее, а в памяти хранятся только страницы вокруг
+ * запрошенных строк, поэтому таблица из миллионов строк открывается так же быстро,
+ * как из нескольких десятков.
+ *
+ * <p>Особенности реализации:
+ * <ul>
+ *     <li>Строка, страница которой еще не загружена, возвращается как null
+ *     (TableView показывает пустую строку); после загрузки приходит событие замены</li>
+ *     <li>При обращении к строке загружаются страницы в пределах запаса prefetchRows
+ *     до и после нее, чтобы при прокрутке строки уже были готовы</li>
+ *     <li>Хранится не больше maxPages страниц: давно не запрошенные вытесняются (LRU)</li>
+ *     <li>Загрузки страниц, ушедших далеко от запрошенных строк, отменяются</li>
+ *     <li>Товар с JavaFX-свойствами создается только при первом обращении к строке</li>
+ *     <li>Ошибка загрузки останавливает загрузку до {@link #reset} или {@link #invalidate()},
+ *     чтобы недоступный источник не опрашивался при каждой отрисовке</li>
+ *     <li>Методы вызываются только из потока JavaFX; результаты загрузок применяются
+ *     через исполнитель, переданный в конструктор (обычно {@code Platform::runLater})</li>
+ * </ul>
+ *
+ * <p>Порядок строк определяет {@link PageLoader}: для сортировки по колонке список
+ * перезапускается с загрузчиком, который сортирует на стороне источника данных.
+ */
+package com.example.lab2dao.model;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public class PagedProductList extends ObservableListBase<Product> {
+    private final int pageSize;
+    private final int prefetchRows;
+    private final int maxPages;
+    private final Executor resultExecutor;
+    /** Загруженные страницы по номеру в порядке доступа (первая - давно не запрашивалась). */
+    private final Map<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    /** Незавершенные загрузки по номеру страницы. */
+    private final Map<Integer, CompletableFuture<List<ProductRecord>>> loading = new HashMap<>();
+
+    private PageLoader loader = (offset, limit) -> CompletableFuture.completedFuture(List.of());
+    private Consumer<Throwable> onLoadFailed = error -> { };
+    private int size;
+    private int lastRequestedIndex;
+    private boolean loadFailed;
+
+    /**
+     * Создает пустой список; строки появляются после {@link #reset(int, PageLoader)}.
+     * @param pageSize количество строк в одной загрузке
+     * @param prefetchRows запас строк до и после запрошенной строки, загружаемый заранее
+     *                     (должен быть не меньше числа видимых строк таблицы)
+     * @param maxPages максимальное количество страниц в памяти
+     * @param resultExecutor исполнитель, в котором применяются загруженные страницы
+     * @throws IllegalArgumentException если maxPages не вмещает запас строк вокруг запрошенной строки
+     */
+    public PagedProductList(int pageSize, int prefetchRows, int maxPages, Executor resultExecutor) {
+        if (pageSize < 1 || prefetchRows < 0) {
+            throw new IllegalArgumentException("Некорректный размер страницы или запаса строк");
+        }
+        if (maxPages < windowPages(pageSize, prefetchRows)) {
+            throw new IllegalArgumentException("Страниц в памяти меньше, чем нужно для запаса строк: " + maxPages);
+        }
+        this.pageSize = pageSize;
+        this.prefetchRows = prefetchRows;
+        this.maxPages = maxPages;
+        this.resultExecutor = resultExecutor;
+    }
+
+    /**
+     * Возвращает товар строки. Если страница не загружена, запускает ее загрузку.
+     * @param index позиция строки
+     * @return товар или null, пока страница загружается
+     */
+    @Override
+    public Product get(int index) {
+        Objects.checkIndex(index, size);
+        lastRequestedIndex = index;
+        requestPagesAround(index);
+        Page page = pages.get(index / pageSize);
+        return page == null ? null : page.view(index % pageSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ищет товар только среди загруженных строк, не запуская загрузку страниц
+     * (модель выделения TableView ищет выбранный товар после изменений списка).
+     * @param o искомый товар
+     * @return позиция строки или -1, если товар не найден среди загруженных
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (o == null) {
+            return -1;
+        }
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            Product[] views = entry.getValue().views;
+            for (int i = 0; i < views.length; i++) {
+                if (o.equals(views[i])) {
+                    return entry.getKey() * pageSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * @param onLoadFailed действие при ошибке загрузки страницы (вызывается в исполнителе результатов);
+     *                     по умолчанию ошибка не обрабатывается, незагруженные строки остаются пустыми
+     */
+    public void setOnLoadFailed(Consumer<Throwable> onLoadFailed) {
+        this.onLoadFailed = onLoadFailed;
+    }
+
+    /**
+     * Заменяет содержимое: новый размер и новый загрузчик (другой источник данных
+     * или порядок строк). Загруженные страницы сбрасываются, незавершенные загрузки отменяются.
+     * @param newSize количество строк (можно оценку, уточнив ее позже через {@link #resize(int)})
+     * @param newLoader загрузчик страниц
+     */
+    public void reset(int newSize, PageLoader newLoader) {
+        cancelLoading();
+        loadFailed = false;
+        List<Product> removed = new LoadedRows(new HashMap<>(pages), size);
+        pages.clear();
+        loader = newLoader;
+        size = Math.max(0, newSize);
+        lastRequestedIndex = 0;
+        beginChange();
+        if (!removed.isEmpty()) {
+            nextRemove(0, removed);
+        }
+        if (size > 0) {
+            nextAdd(0, size);
+        }
+        endChange();
+    }
+
+    /**
+     * Изменяет количество строк, сохраняя загруженные страницы.
+     * Используется, когда точное количество строк становится известно после оценки.
+     * @param newSize новое количество строк
+     */
+    public void resize(int newSize) {
+        int oldSize = size;
+        size = Math.max(0, newSize);
+        if (size == oldSize) {
+            return;
+        }
+        if (size < oldSize) {
+            List<Product> removed = new LoadedRows(new HashMap<>(pages), oldSize).subList(size, oldSize);
+            pages.keySet().removeIf(page -> page * pageSize >= size);
+            beginChange();
+            nextRemove(size, removed);
+            endChange();
+        } else {
+            // Последняя страница могла быть загружена короче, чем станет теперь
+            Page last = pages.get((oldSize - 1) / pageSize);
+            if (oldSize > 0 && last != null) {
+                last.stale = true;
+            }
+            beginChange();
+            nextAdd(oldSize, size);
+            endChange();
+        }
+        lastRequestedIndex = Math.min(lastRequestedIndex, Math.max(0, size - 1));
+        if (size > 0) {
+            requestPagesAround(lastRequestedIndex);
+        }
+    }
+
+    /**
+     * Перечитывает строки после изменения данных в источнике, сохраняя размер и загрузчик.
+     * Страницы вокруг последней запрошенной строки загружаются заново и до прихода
+     * новых данных показывают прежние; остальные страницы сбрасываются.
+     */
+    public void invalidate() {
+        cancelLoading();
+        loadFailed = false;
+        if (size == 0) {
+            return;
+        }
+        int first = firstWindowPage(lastRequestedIndex);
+        int last = lastWindowPage(lastRequestedIndex);
+        beginChange();
+        for (Iterator<Map.Entry<Integer, Page>> it = pages.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Page> entry = it.next();
+            int page = entry.getKey();
+            if (page >= first && page <= last) {
+                entry.getValue().stale = true;
+            } else {
+                it.remove();
+                int from = page * pageSize;
+                nextReplace(from, rowsEnd(page), entry.getValue().removedRows(rowsEnd(page) - from));
+            }
+        }
+        endChange();
+        requestPagesAround(lastRequestedIndex);
+    }
+
+    /**
+     * Возвращает запись загруженной строки.
+     * @param index позиция строки
+     * @return запись или null, если страница строки не загружена
+     */
+    public ProductRecord getRecord(int index) {
+        Objects.checkIndex(index, size);
+        Page page = pages.get(index / pageSize);
+        int offset = index % pageSize;
+        return page == null || offset >= page.records.length ? null : page.records[offset];
+    }
+
+    /**
+     * Находит позицию записи по ID среди загруженных строк.
+     * @param id идентификатор товара
+     * @return позиция строки или -1, если строка с таким ID не загружена
+     */
+    public int indexOfId(int id) {
+        for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+            ProductRecord[] records = entry.getValue().records;
+            for (int i = 0; i < records.length; i++) {
+                if (records[i].id() == id) {
+                    return entry.getKey() * pageSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Заменяет загруженную строку с тем же ID, не меняя ее позицию.
+     * @param record новая запись
+     * @return true, если строка загружена и заменена
+     */
+    public boolean replaceRecord(ProductRecord record) {
+        int index = indexOfId(record.id());
+        if (index < 0) {
+            return false;
+        }
+        Page page = pages.get(index / pageSize);
+        int offset = index % pageSize;
+        Product old = page.removedView(offset);
+        page.records[offset] = record;
+        page.views[offset] = null;
+        beginChange();
+        nextSet(index, old);
+        endChange();
+        return true;
+    }
+
+    /**
+     * Загружает страницы в пределах запаса строк вокруг index, которых нет в памяти
+     * или которые устарели, и отменяет загрузки страниц вне этого окна.
+     */
+    private void requestPagesAround(int index) {
+        if (loadFailed) {
+            return;
+        }
+        int first = firstWindowPage(index);
+        int last = lastWindowPage(index);
+        if (!loading.isEmpty()) {
+            // Строки отрисовываются сверху вниз, поэтому окно расширено на страницу в каждую сторону
+            loading.entrySet().removeIf(entry -> {
+                boolean outside = entry.getKey() < first - 1 || entry.getKey() > last + 1;
+                if (outside) {
+                    entry.getValue().cancel(false);
+                }
+                return outside;
+            });
+        }
+        for (int page = first; page <= last; page++) {
+            Page loaded = pages.get(page);
+            if ((loaded == null || loaded.stale) && !loading.containsKey(page)) {
+                load(page);
+            }
+        }
+    }
+
+    private void load(int page) {
+        CompletableFuture<List<ProductRecord>> request = loader.load(page * pageSize, pageSize);
+        loading.put(page, request);
+        request.whenCompleteAsync((rows, error) -> {
+            // Отмененная или замененная загрузка уже не нужна
+            if (loading.get(page) != request) {
+                return;
+            }
+            loading.remove(page);
+            if (error != null) {
+                // Об ошибке сообщается один раз, даже если не загрузились несколько страниц
+                if (!loadFailed) {
+                    loadFailed = true;
+                    onLoadFailed.accept(error);
+                }
+            } else {
+                storePage(page, rows);
+            }
+        }, resultExecutor);
+    }
+
+    private void storePage(int page, List<ProductRecord> rows) {
+        int from = page * pageSize;
+        if (from >= size) {
+            return;
+        }
+        int to = rowsEnd(page);
+        int count = Math.min(rows.size(), to - from);
+        Page old = pages.remove(page);
+        pages.put(page, new Page(rows.subList(0, count).toArray(new ProductRecord[0])));
+        beginChange();
+        nextReplace(from, to, old == null ? Collections.nCopies(to - from, null) : old.removedRows(to - from));
+        evictPages(page);
+        endChange();
+    }
+
+    /**
+     * Вытесняет давно не запрошенные страницы сверх maxPages (их строки снова становятся null).
+     */
+    private void evictPages(int keep) {
+        Iterator<Map.Entry<Integer, Page>> it = pages.entrySet().iterator();
+        while (pages.size() > maxPages && it.hasNext()) {
+            Map.Entry<Integer, Page> eldest = it.next();
+            int page = eldest.getKey();
+            if (page == keep) {
+                continue;
+            }
+            it.remove();
+            int from = page * pageSize;
+            nextReplace(from, rowsEnd(page), eldest.getValue().removedRows(rowsEnd(page) - from));
+        }
+    }
+
+    private void cancelLoading() {
+        for (CompletableFuture<List<ProductRecord>> request : loading.values()) {
+            request.cancel(false);
+        }
+        loading.clear();
+    }
+
+    private int firstWindowPage(int index) {
+        return Math.max(0, index - prefetchRows) / pageSize;
+    }
+
+    private int lastWindowPage(int index) {
+        return Math.min(size - 1, index + prefetchRows) / pageSize;
+    }
+
+    /**
+     * @return позиция за последней строкой страницы с учетом размера списка
+     */
+    private int rowsEnd(int page) {
+        return Math.min(size, (page + 1) * pageSize);
+    }
+
+    private static int windowPages(int pageSize, int prefetchRows) {
+        return (2 * prefetchRows) / pageSize + 2;
+    }
+
+    /**
+     * Загрузка страницы из источника данных.
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+        /**
+         * @param offset позиция первой строки страницы
+         * @param limit максимальное количество строк
+         * @return future со строками страницы; отмена означает, что страница больше не нужна
+         */
+        CompletableFuture<List<ProductRecord>> load(int offset, int limit);
+    }
+
+    /**
+     * Загруженная страница: записи и созданные по ним товары.
+     * Может быть короче pageSize, если источник вернул меньше строк.
+     */
+    private static final class Page {
+        private final ProductRecord[] records;
+        private final Product[] views;
+        /** true - данные источника изменились, страница перезагружается. */
+        private boolean stale;
+
+        Page(ProductRecord[] records) {
+            this.records = records;
+            this.views = new Product[records.length];
+        }
+
+        Product view(int offset) {
+            if (offset >= records.length) {
+                return null;
+            }
+            Product view = views[offset];
+            if (view == null) {
+                view = new Product(records[offset]);
+                views[offset] = view;
+            }
+            return view;
+        }
+
+        /**
+         * Товар строки для события изменения; не запоминается, если строка не запрашивалась.
+         */
+        Product removedView(int offset) {
+            if (offset >= records.length) {
+                return null;
+            }
+            Product view = views[offset];
+            return view != null ? view : new Product(records[offset]);
+        }
+
+        List<Product> removedRows(int count) {
+            return new AbstractList<>() {
+                @Override
+                public Product get(int index) {
+                    return removedView(index);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Прежнее содержимое списка для события удаления; товары создаются,
+     * только если подписчик события к ним обращается.
+     */
+    private final class LoadedRows extends AbstractList<Product> {
+        private final Map<Integer, Page> snapshot;
+        private final int rows;
+
+        LoadedRows(Map<Integer, Page> snapshot, int rows) {
+            this.snapshot = snapshot;
+            this.rows = rows;
+        }
+
+        @Override
+        public Product get(int index) {
+            Page page = snapshot.get(index / pageSize);
+            return page == null ? null : page.removedView(index % pageSize);
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+    }
+}
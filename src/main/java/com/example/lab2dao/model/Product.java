@@ -16,6 +16,9 @@
  *     <li>Поддерживает двусторонний биндинг данных</li>
  *     <li>Автоматически уведомляет об изменениях в данных</li>
  * </ul>
+ *
+ * <p>Используется только в представлении: DAO работают с неизменяемыми {@link ProductRecord},
+ * а {@link PagedProductList} создает товары из записей, когда строки таблицы отображаются.
  */
 package com.example.lab2dao.model;
 
@@ -45,6 +48,23 @@ public class Product {
         this.tag = new SimpleStringProperty(tag);
     }
 
+    /**
+     * Создает наблюдаемый товар с данными записи.
+     *
+     * @param record запись из слоя доступа к данным
+     */
+    public Product(ProductRecord record) {
+        this(record.id(), record.name(), record.quantity(), record.tag());
+    }
+
+    /**
+     * Возвращает снимок текущих значений свойств для передачи в DAO.
+     * @return неизменяемая запись с данными товара
+     */
+    public ProductRecord toRecord() {
+        return new ProductRecord(getId(), getName(), getQuantity(), getTag());
+    }
+
     /**
      * Возвращает числовое значение идентификатора товара.
      * @return текущий ID
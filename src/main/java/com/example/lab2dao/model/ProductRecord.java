@@ -0,0 +1,37 @@
+/**
+ * Неизменяемая запись о товаре для слоя доступа к данным.
+ * Все реализации ProductDao принимают и возвращают записи, не завися от JavaFX;
+ * наблюдаемые {@link Product} создаются из записей только для отображения в UI.
+ *
+ * <p>Особенности:
+ * <ul>
+ *     <li>Четыре поля без оберток: запись занимает около 32 байт против
+ *     ~190 байт у {@link Product} с четырьмя JavaFX-свойствами (без учета строк)</li>
+ *     <li>Безопасна для передачи между потоками и хранения в индексах и кэшах</li>
+ *     <li>Изменение - создание новой записи ({@link #withId(int)}, {@link #withQuantity(int)})</li>
+ * </ul>
+ *
+ * @param id уникальный идентификатор (0 - еще не присвоен хранилищем)
+ * @param name наименование товара
+ * @param quantity количество на складе
+ * @param tag дополнительный тег/категория товара (может быть null)
+ */
+package com.example.lab2dao.model;
+
+public record ProductRecord(int id, String name, int quantity, String tag) {
+    /**
+     * @param id новый идентификатор
+     * @return копия записи с указанным ID
+     */
+    public ProductRecord withId(int id) {
+        return new ProductRecord(id, name, quantity, tag);
+    }
+
+    /**
+     * @param quantity новое количество
+     * @return копия записи с указанным количеством
+     */
+    public ProductRecord withQuantity(int quantity) {
+        return new ProductRecord(id, name, quantity, tag);
+    }
+}
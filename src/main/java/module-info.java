@@ -13,6 +13,8 @@ module com.example.lab2dao {
     requires org.apache.poi.poi;
     requires org.apache.poi.ooxml;
     requires java.sql;
+    requires java.management;
+    requires org.postgresql.jdbc;
 
     opens com.example.lab2dao to javafx.fxml;
     exports com.example.lab2dao;
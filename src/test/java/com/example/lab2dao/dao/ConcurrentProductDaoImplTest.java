@@ -0,0 +1,179 @@
+/**
+ * Нагрузочные тесты {@link ConcurrentProductDaoImpl}: одновременные добавления,
+ * обновления, удаления и изменения количества из нескольких потоков.
+ *
+ * <p>Проверяется:
+ * <ul>
+ *     <li>ID уникальны, а ID одного пакета {@link ConcurrentProductDaoImpl#addProducts} идут подряд</li>
+ *     <li>Снимок {@link ConcurrentProductDaoImpl#getAllProducts()} видит пакет целиком или не видит вовсе</li>
+ *     <li>Одновременные {@link ConcurrentProductDaoImpl#adjustQuantity} не теряют изменений</li>
+ * </ul>
+ */
+package com.example.lab2dao.dao;
+
+import com.example.lab2dao.model.ProductRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentProductDaoImplTest {
+    private static final int THREADS = 8;
+    private static final int BATCH_SIZE = 50;
+    private static final int BATCHES_PER_THREAD = 200;
+
+    private final ConcurrentProductDaoImpl dao = new ConcurrentProductDaoImpl();
+
+    @Test
+    void concurrentAddsGetUniqueIdsWithoutGapsInsideBatch() throws Exception {
+        List<List<ProductRecord>> batches = runConcurrently(thread -> {
+            List<List<ProductRecord>> added = new ArrayList<>();
+            for (int i = 0; i < BATCHES_PER_THREAD; i++) {
+                added.add(dao.addProducts(batch("add-" + thread + "-" + i)));
+                added.add(List.of(dao.addProduct(new ProductRecord(0, "single-" + thread + "-" + i, 0, null))));
+            }
+            return added;
+        });
+
+        Set<Integer> ids = new HashSet<>();
+        for (List<ProductRecord> batch : batches) {
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(batch.get(0).id() + i, batch.get(i).id(), "ID пакета идут подряд");
+                assertTrue(ids.add(batch.get(i).id()), "ID повторился: " + batch.get(i).id());
+            }
+        }
+        int expected = THREADS * BATCHES_PER_THREAD * (BATCH_SIZE + 1);
+        assertEquals(expected, ids.size());
+        assertEquals(expected, dao.countProducts());
+    }
+
+    @Test
+    void snapshotsSeeWholeBatchesWhileOthersAddUpdateAndDelete() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newSingleThreadExecutor();
+        Future<Integer> snapshots = readers.submit(() -> {
+            int checked = 0;
+            while (writing.get()) {
+                assertConsistent(dao.getAllProducts());
+                checked++;
+            }
+            assertConsistent(dao.getAllProducts());
+            return checked;
+        });
+        try {
+            runConcurrently(thread -> {
+                for (int i = 0; i < BATCHES_PER_THREAD; i++) {
+                    String name = "batch-" + thread + "-" + i;
+                    List<ProductRecord> added = dao.addProducts(batch(name));
+                    List<ProductRecord> updated = new ArrayList<>(added.size());
+                    for (ProductRecord product : added) {
+                        updated.add(product.withQuantity(i + 1));
+                    }
+                    dao.updateProducts(updated);
+                    if (i % 2 == 0) {
+                        dao.deleteProducts(added.stream().map(ProductRecord::id).toList());
+                    }
+                }
+                return List.of();
+            });
+            writing.set(false);
+            assertTrue(snapshots.get(1, TimeUnit.MINUTES) > 0);
+        } finally {
+            writing.set(false);
+            readers.shutdownNow();
+        }
+        assertEquals(THREADS * BATCHES_PER_THREAD / 2 * BATCH_SIZE, dao.countProducts());
+    }
+
+    @Test
+    void concurrentAdjustmentsLoseNoUpdates() throws Exception {
+        int increments = 10_000;
+        ProductRecord counter = dao.addProduct(new ProductRecord(0, "counter", 0, null));
+        ProductRecord stock = dao.addProduct(new ProductRecord(0, "stock", THREADS * increments, null));
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < increments; i++) {
+                dao.adjustQuantity(counter.id(), 1, false);
+                dao.adjustQuantity(stock.id(), -1, true);
+            }
+            return List.of();
+        });
+
+        assertEquals(THREADS * increments, dao.getProductById(counter.id()).orElseThrow().quantity());
+        assertEquals(0, dao.getProductById(stock.id()).orElseThrow().quantity());
+    }
+
+    /**
+     * Проверяет, что каждый пакет в снимке присутствует целиком и с одним количеством.
+     */
+    private static void assertConsistent(List<ProductRecord> snapshot) {
+        Map<String, List<ProductRecord>> byBatch = new HashMap<>();
+        for (ProductRecord product : snapshot) {
+            byBatch.computeIfAbsent(product.tag(), tag -> new ArrayList<>()).add(product);
+        }
+        for (Map.Entry<String, List<ProductRecord>> entry : byBatch.entrySet()) {
+            List<ProductRecord> products = entry.getValue();
+            assertEquals(BATCH_SIZE, products.size(), "Пакет виден частично: " + entry.getKey());
+            int quantity = products.get(0).quantity();
+            assertTrue(products.stream().allMatch(product -> product.quantity() == quantity),
+                    "Пакет обновлен частично: " + entry.getKey());
+        }
+    }
+
+    /**
+     * Пакет продуктов; имя пакета записывается в тег, чтобы найти пакет в снимке.
+     */
+    private static List<ProductRecord> batch(String name) {
+        List<ProductRecord> products = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            products.add(new ProductRecord(0, name + "-" + i, 0, name));
+        }
+        return products;
+    }
+
+    /**
+     * Запускает задачу в {@value #THREADS} потоках одновременно и собирает их результаты.
+     */
+    private static <T> List<T> runConcurrently(Worker<T> worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<T>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int number = thread;
+                Callable<List<T>> task = () -> {
+                    start.await();
+                    return worker.run(number);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<List<T>> future : futures) {
+                results.addAll(future.get(1, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Worker<T> {
+        List<T> run(int thread) throws Exception;
+    }
+}